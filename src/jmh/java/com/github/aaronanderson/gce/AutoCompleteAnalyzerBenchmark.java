@@ -0,0 +1,157 @@
+package com.github.aaronanderson.gce;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+//AutoCompleteAnalyzer construction, with and without a saved type index, and analyze() for the hint categories of the tests and the synthetic scripts.
+//The requests have no document id so no parse session is reused, the cost of the first hint request for a document.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AutoCompleteAnalyzerBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class AnalyzerState {
+        AutoCompleteAnalyzer analyzer;
+        int documents;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            analyzer = new AutoCompleteAnalyzer(false, Collections.emptyList(), Collections.emptyList());
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws Exception {
+            analyzer.close();
+        }
+
+        String nextName() {
+            return "benchmark" + documents++ + ".groovy";
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class IndexFileState {
+        Path indexFile;
+
+        @Setup(Level.Trial)
+        public void setup() throws Exception {
+            indexFile = Files.createTempDirectory("gce-benchmark").resolve("type-index.bin");
+            new AutoCompleteAnalyzer(false, Collections.emptyList(), Collections.emptyList(), indexFile).close();
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            Files.deleteIfExists(indexFile);
+            Files.deleteIfExists(indexFile.getParent());
+        }
+    }
+
+    //test script, line and column of the hint
+    @State(Scope.Benchmark)
+    public static class CategoryState {
+        @Param({ "variable", "constructor", "methodReturn", "import", "property" })
+        String category;
+
+        String script;
+        int line;
+        int ch;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            switch (category) {
+            case "variable":
+                hint("hint-new-variable-type.groovy", 2, 16);
+                break;
+            case "constructor":
+                hint("hint-new-variable-constructor-param.groovy", 3, 23);
+                break;
+            case "methodReturn":
+                hint("hint-method-return2.groovy", 2, 34);
+                break;
+            case "import":
+                hint("hint-import.groovy", 0, 21);
+                break;
+            case "property":
+                hint("hint-field.groovy", 4, 21);
+                break;
+            default:
+                throw new IllegalArgumentException(category);
+            }
+        }
+
+        private void hint(String name, int line, int ch) {
+            this.script = BenchmarkScripts.resource(name);
+            this.line = line;
+            this.ch = ch;
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class SyntheticState {
+        @Param({ "100", "1000", "10000" })
+        int lines;
+
+        @Param({ "false", "true" })
+        boolean repair;
+
+        String script;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            script = BenchmarkScripts.hint(lines, repair);
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 1)
+    @Measurement(iterations = 5)
+    public TypeIndex construct() throws Exception {
+        try (AutoCompleteAnalyzer analyzer = new AutoCompleteAnalyzer(false, Collections.emptyList(), Collections.emptyList())) {
+            return analyzer.globalIndex;
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 1)
+    @Measurement(iterations = 5)
+    public TypeIndex constructFromIndexFile(IndexFileState state) throws Exception {
+        try (AutoCompleteAnalyzer analyzer = new AutoCompleteAnalyzer(false, Collections.emptyList(), Collections.emptyList(), state.indexFile)) {
+            return analyzer.globalIndex;
+        }
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public List<Hint> analyze(AnalyzerState analyzer, CategoryState hint) {
+        return analyzer.analyzer.analyze(new AutoCompleteRequest(hint.line, hint.ch, "before"), analyzer.nextName(), hint.script);
+    }
+
+    @Benchmark
+    public List<Hint> analyzeSynthetic(AnalyzerState analyzer, SyntheticState synthetic) {
+        return analyzer.analyzer.analyze(BenchmarkScripts.hintRequest(synthetic.script), analyzer.nextName(), synthetic.script);
+    }
+
+}
@@ -0,0 +1,47 @@
+package com.github.aaronanderson.gce;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.codehaus.groovy.control.SourceUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+//AutoCompleteParser.parse() of the synthetic scripts, either compiling as typed or only after the dangling dot repair. Each parse starts a new session.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AutoCompleteParserBenchmark {
+
+    @Param({ "100", "1000", "10000" })
+    int lines;
+
+    @Param({ "false", "true" })
+    boolean repair;
+
+    String script;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        script = BenchmarkScripts.hint(lines, repair);
+    }
+
+    @Benchmark
+    public List<SourceUnit> parse() {
+        return new AutoCompleteParser(BenchmarkScripts.hintRequest(script), "benchmark.groovy", script).parse();
+    }
+
+}
@@ -0,0 +1,74 @@
+package com.github.aaronanderson.gce;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+//Scripts for the benchmarks: the hint test scripts and synthetic scripts of a given length made of blocks with a class and a helper method.
+class BenchmarkScripts {
+
+    private static final String[] BLOCK = new String[] {
+            "class Item%1$d {",
+            "    String name = \"item%1$d\"",
+            "    int count = %1$d",
+            "    String label() { name + \":\" + count }",
+            "    int size() { label().length() }",
+            "}",
+            "def block%1$d() {",
+            "    Item%1$d item = new Item%1$d()",
+            "    return item.size()",
+            "}" };
+    //blocks called by each top level statement, the script statements share a single method limited to 64K of bytecode.
+    private static final int GROUP = 10;
+
+    private BenchmarkScripts() {
+    }
+
+    //a script from src/test/resources/scripts
+    static String resource(String name) {
+        try (InputStream in = BenchmarkScripts.class.getResourceAsStream("/scripts/" + name)) {
+            if (in == null) {
+                throw new IllegalArgumentException(String.format("Script %s not found", name));
+            }
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    //about the given number of lines, ending with a String target variable. The script runs and returns target.
+    static String synthetic(int lines) {
+        StringBuilder script = new StringBuilder("import javax.json.*\n\nint total = 0\n");
+        int blocks = Math.max(1, (lines - 4) * GROUP / (BLOCK.length * GROUP + 1));
+        for (int i = 0; i < blocks; i++) {
+            for (String line : BLOCK) {
+                script.append(String.format(line, i)).append('\n');
+            }
+            if (i % GROUP == GROUP - 1 || i == blocks - 1) {
+                script.append("total += ");
+                for (int j = i - i % GROUP; j <= i; j++) {
+                    script.append(j > i - i % GROUP ? " + " : "").append("block").append(j).append("()");
+                }
+                script.append('\n');
+            }
+        }
+        return script.append("String target = Json.createValue(total).toString()\n").toString();
+    }
+
+    static String runnable(int lines) {
+        return synthetic(lines) + "return target\n";
+    }
+
+    //a synthetic script ending with target.tr, which compiles, or with a dangling target. that only compiles after a repair.
+    static String hint(int lines, boolean repair) {
+        return synthetic(lines) + (repair ? "target." : "target.tr");
+    }
+
+    //the request for the hint at the end of a hint(lines, repair) script.
+    static AutoCompleteRequest hintRequest(String script) {
+        int line = (int) script.chars().filter(c -> c == '\n').count();
+        return new AutoCompleteRequest(line, script.length() - script.lastIndexOf('\n') - 1, "before");
+    }
+
+}
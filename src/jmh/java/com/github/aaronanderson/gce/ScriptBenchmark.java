@@ -0,0 +1,76 @@
+package com.github.aaronanderson.gce;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.json.JsonObject;
+
+import org.codehaus.groovy.runtime.InvokerHelper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import groovy.lang.Binding;
+import groovy.lang.Script;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+//Validation and execution of the synthetic scripts. Validation bypasses the result cache so every call compiles, execution reuses the cached script class as /gce/run does.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ScriptBenchmark {
+
+    @Param({ "100", "1000", "10000" })
+    int lines;
+
+    String script;
+    ScriptValidator scriptValidator;
+    ScriptClassCache scriptClassCache;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        script = BenchmarkScripts.runnable(lines);
+        scriptValidator = new ScriptValidator();
+        scriptValidator.registry = new SimpleMeterRegistry();
+        scriptValidator.cacheSize = 0;
+        scriptValidator.start();
+        scriptClassCache = new ScriptClassCache();
+        scriptClassCache.importsBlacklist = List.of();
+        scriptClassCache.starImportsBlacklist = List.of();
+        scriptClassCache.cacheSize = 1;
+        scriptClassCache.timeout = 30;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        scriptClassCache.close();
+    }
+
+    @Benchmark
+    public JsonObject validate() {
+        return scriptValidator.validate("benchmark.groovy", script);
+    }
+
+    @Benchmark
+    public Object run() {
+        Script instance = InvokerHelper.createScript(scriptClassCache.getScriptClass("benchmark.groovy", script), new Binding());
+        instance.setProperty("out", new PrintWriter(new StringWriter(), true));
+        return instance.run();
+    }
+
+}
@@ -0,0 +1,196 @@
+package com.github.aaronanderson.gce;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+//Script attachments spooled to temp files so large uploads are never held on the heap.
+//An attachment is either uploaded ahead of the run, streamed straight from the request body to disk, and referenced by id from a single run,
+//or spooled from the multipart attachment part of the run. Either way the file is deleted when the run completes.
+@ApplicationScoped
+public class AttachmentStore {
+
+    static Logger logger = Logger.getLogger(AttachmentStore.class);
+
+    @ConfigProperty(name = "gce.run.attachmentMaxSize", defaultValue = "268435456")
+    long maxSize;
+
+    @ConfigProperty(name = "gce.run.attachmentDir")
+    Optional<String> attachmentDir;
+
+    //uploaded attachments that are never run are removed after this many seconds.
+    @ConfigProperty(name = "gce.run.attachmentTtl", defaultValue = "600")
+    long ttl;
+
+    private final Map<String, Attachment> uploads = new HashMap<>();
+
+    //returns the id of the uploaded attachment.
+    public String upload(String name, InputStream contents) throws IOException {
+        Attachment attachment = spool(name, contents);
+        String id = UUID.randomUUID().toString();
+        List<Attachment> expired = new ArrayList<>();
+        synchronized (uploads) {
+            long now = System.currentTimeMillis();
+            uploads.values().removeIf(a -> now - a.created > ttl * 1000 && expired.add(a));
+            uploads.put(id, attachment);
+        }
+        expired.forEach(Attachment::delete);
+        return id;
+    }
+
+    //removes the uploaded attachment, it belongs to the caller from now on.
+    public Attachment take(String id) throws FileNotFoundException {
+        Attachment attachment;
+        synchronized (uploads) {
+            attachment = uploads.remove(id);
+        }
+        if (attachment != null && System.currentTimeMillis() - attachment.created > ttl * 1000) {
+            attachment.delete();
+            attachment = null;
+        }
+        if (attachment == null) {
+            throw new FileNotFoundException(String.format("Attachment %s not found, it may have expired or already been run", id));
+        }
+        return attachment;
+    }
+
+    public Attachment spool(String name, InputStream contents) throws IOException {
+        Path dir = attachmentDir.isPresent() ? Files.createDirectories(Paths.get(attachmentDir.get())) : Paths.get(System.getProperty("java.io.tmpdir"));
+        Path file = Files.createTempFile(dir, "gce-attachment", ".tmp");
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE); ReadableByteChannel in = Channels.newChannel(contents)) {
+            long size = 0;
+            long count;
+            //read one byte past the limit to detect oversized attachments without trusting Content-Length.
+            while ((count = channel.transferFrom(in, size, maxSize + 1 - size)) > 0) {
+                size += count;
+                if (size > maxSize) {
+                    throw new AttachmentTooLargeException(String.format("Attachment %s exceeds the %d byte limit", name, maxSize));
+                }
+            }
+            return new Attachment(name, file, size);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+    }
+
+    @PreDestroy
+    void close() {
+        List<Attachment> released;
+        synchronized (uploads) {
+            released = new ArrayList<>(uploads.values());
+            uploads.clear();
+        }
+        released.forEach(Attachment::delete);
+    }
+
+    public static class Attachment {
+        private final String name;
+        private final Path file;
+        private final long size;
+        private final long created = System.currentTimeMillis();
+
+        private Attachment(String name, Path file, long size) {
+            this.name = name;
+            this.file = file;
+            this.size = size;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        //the file is only opened on the first read.
+        public InputStream openStream() {
+            return new InputStream() {
+                private InputStream in;
+
+                private InputStream in() throws IOException {
+                    if (in == null) {
+                        in = Files.newInputStream(file);
+                    }
+                    return in;
+                }
+
+                @Override
+                public int read() throws IOException {
+                    return in().read();
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) throws IOException {
+                    return in().read(b, off, len);
+                }
+
+                @Override
+                public long skip(long n) throws IOException {
+                    return in().skip(n);
+                }
+
+                @Override
+                public int available() throws IOException {
+                    return in().available();
+                }
+
+                @Override
+                public void close() throws IOException {
+                    if (in != null) {
+                        in.close();
+                    }
+                }
+            };
+        }
+
+        //read-only view of the file mapped into memory, null for attachments over 2GB.
+        public ByteBuffer map() throws IOException {
+            if (size > Integer.MAX_VALUE) {
+                return null;
+            }
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            }
+        }
+
+        public void delete() {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                logger.warnf(e, "Unable to delete attachment %s", file);
+            }
+        }
+    }
+
+    public static class AttachmentTooLargeException extends IOException {
+
+        private static final long serialVersionUID = 1L;
+
+        private AttachmentTooLargeException(String message) {
+            super(message);
+        }
+    }
+
+}
@@ -1,22 +1,29 @@
 package com.github.aaronanderson.gce;
 
-import java.io.IOException;
-import java.net.URL;
-import java.net.URLClassLoader;
-import java.nio.file.FileSystem;
-import java.nio.file.Files;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
 import java.nio.file.Path;
-import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
 
 import org.codehaus.groovy.ast.ASTNode;
 import org.codehaus.groovy.ast.ClassNode;
@@ -33,31 +40,19 @@ import org.codehaus.groovy.ast.expr.Expression;
 import org.codehaus.groovy.ast.expr.MethodCallExpression;
 import org.codehaus.groovy.ast.expr.PropertyExpression;
 import org.codehaus.groovy.ast.expr.VariableExpression;
+import org.codehaus.groovy.control.ResolveVisitor;
 import org.codehaus.groovy.control.SourceUnit;
-import org.codehaus.groovy.tools.GroovyClass;
 import org.jboss.logging.Logger;
 
-import com.google.common.jimfs.Jimfs;
+import com.github.aaronanderson.gce.PartialParser.CursorContext;
+import com.github.aaronanderson.gce.PartialParser.Segment;
+import com.github.aaronanderson.gce.TypeIndex.ClassEntry;
+import com.github.aaronanderson.gce.TypeIndex.MemberEntry;
+import com.github.aaronanderson.gce.TypeIndex.PackageEntry;
 
-import io.github.classgraph.ArrayTypeSignature;
-import io.github.classgraph.BaseTypeSignature;
 import io.github.classgraph.ClassGraph;
-import io.github.classgraph.ClassInfo;
-import io.github.classgraph.ClassInfoList;
-import io.github.classgraph.ClassRefTypeSignature;
-import io.github.classgraph.FieldInfo;
-import io.github.classgraph.FieldInfoList;
-import io.github.classgraph.MethodInfo;
-import io.github.classgraph.MethodInfoList;
-import io.github.classgraph.MethodInfoList.MethodInfoFilter;
-import io.github.classgraph.MethodParameterInfo;
-import io.github.classgraph.PackageInfo;
-import io.github.classgraph.PackageInfoList;
-import io.github.classgraph.ReferenceTypeSignature;
-import io.github.classgraph.ScanResult;
-import io.github.classgraph.TypeParameter;
-import io.github.classgraph.TypeSignature;
-import io.github.classgraph.TypeVariableSignature;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
 
 public class AutoCompleteAnalyzer implements AutoCloseable {
 
@@ -78,58 +73,113 @@ public class AutoCompleteAnalyzer implements AutoCloseable {
         WRAPPER_TYPES.put(void.class, Void.class);
     }
 
-    private boolean autoImport = false;
-    final ScanResult globalScanResult;
+    private static final Map<String, Class<?>> PRIMITIVE_TYPES;
+    static {
+        PRIMITIVE_TYPES = new HashMap<String, Class<?>>();
+        for (Class<?> primitive : WRAPPER_TYPES.keySet()) {
+            PRIMITIVE_TYPES.put(primitive.getName(), primitive);
+        }
+    }
+
+    //parse sessions kept when the analyzer is not created with gce.hint.sessionCacheSize.
+    static final int SESSION_CACHE_SIZE = 100;
+    //repair candidates that may wait per repair thread.
+    private static final int REPAIR_QUEUE_FACTOR = 2;
+
+    private final boolean autoImport;
+    private final int sessionCacheSize;
+    //compiles the alternative repairs of a script that does not compile, the first repair is compiled on the request thread.
+    private final ExecutorService repairExecutor;
+    final TypeIndex globalIndex;
+    private final HintMetrics metrics;
+    //parse sessions of the most recently hinted documents, by the document id of the editor. Editors of scripts with the same name do not share a session.
+    private final Map<String, ParseSession> sessions = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, ParseSession> eldest) {
+            return size() > sessionCacheSize;
+        }
+    };
 
     public AutoCompleteAnalyzer(boolean autoImport, List<String> acceptPackages, List<String> rejectPackages) {
+        this(autoImport, acceptPackages, rejectPackages, null);
+    }
+
+    public AutoCompleteAnalyzer(boolean autoImport, List<String> acceptPackages, List<String> rejectPackages, Path indexFile) {
+        this(autoImport, acceptPackages, rejectPackages, indexFile, Metrics.globalRegistry, SESSION_CACHE_SIZE);
+    }
+
+    public AutoCompleteAnalyzer(boolean autoImport, List<String> acceptPackages, List<String> rejectPackages, Path indexFile, MeterRegistry registry, int sessionCacheSize) {
         this.autoImport = autoImport;
+        this.sessionCacheSize = sessionCacheSize;
+        this.metrics = new HintMetrics(registry);
+        AtomicInteger count = new AtomicInteger();
+        int repairThreads = Math.max(1, Math.min(3, Runtime.getRuntime().availableProcessors() - 1));
+        //a candidate discarded when the queue is full is compiled on the request thread when its turn comes.
+        this.repairExecutor = new ThreadPoolExecutor(repairThreads, repairThreads, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(repairThreads * REPAIR_QUEUE_FACTOR), r -> {
+            Thread thread = new Thread(r, "gce-repair-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.DiscardPolicy());
         ClassGraph classGraph = new ClassGraph();
         classGraph.acceptPackages(acceptPackages.toArray(new String[acceptPackages.size()]));
         classGraph.rejectPackages(rejectPackages.toArray(new String[rejectPackages.size()]));
         classGraph.enableSystemJarsAndModules().enableClassInfo().enableMethodInfo().enableFieldInfo();
-        globalScanResult = classGraph.scan();
+        //only the compact type index is retained, the ScanResult is closed as soon as it is indexed.
+        if (indexFile != null) {
+            globalIndex = TypeIndex.load(classGraph, indexFile, acceptPackages, rejectPackages);
+        } else {
+            globalIndex = TypeIndex.scan(classGraph);
+        }
     }
 
     @Override
     public void close() throws Exception {
-        if (globalScanResult != null) {
-            globalScanResult.close();
-        }
-
+        //a mapped index file is unmapped when the buffer is collected.
+        repairExecutor.shutdownNow();
     }
 
     public List<Hint> analyze(AutoCompleteRequest autoCompleteRequest, String name, String scriptContents) {
-        AutoCompleteParser parser = new AutoCompleteParser(autoCompleteRequest, name, scriptContents);
-        List<SourceUnit> sources = parser.parse();
-
-        if (!parser.getGroovyClasses().isEmpty()) {
-            try (FileSystem memFs = Jimfs.newFileSystem()) {
-                final Path memFsRoot = memFs.getPath("");
-                for (GroovyClass clazz : parser.getGroovyClasses()) {
-                    Path classPath = memFsRoot.resolve(clazz.getName() + ".class");
-                    Files.write(classPath, clazz.getBytes(), StandardOpenOption.CREATE);
-                }
-                final URL memFsRootURL = memFsRoot.toUri().toURL();
-                try (URLClassLoader childClassLoader = new URLClassLoader(new URL[] { memFsRootURL })) {
-                    ClassGraph classGraph = new ClassGraph().enableURLScheme(memFsRootURL.getProtocol())
-                            .overrideClassLoaders(childClassLoader).ignoreParentClassLoaders().acceptPackagesNonRecursive("").enableClassInfo().enableMethodInfo().enableFieldInfo();
-                    try (ScanResult scriptScanResult = classGraph.scan()) {
-                        for (SourceUnit source : sources) {
-                            List<Hint> hints = new SourceUnitInspector(source, autoCompleteRequest, scriptScanResult).scan();
-                            if (!hints.isEmpty()) {
-                                return hints;
-                            }
-                        }
-                    }
-                }
-            } catch (IOException e) {
-                logger.error("JimFS error", e);
+        ParseSession session;
+        String documentId = autoCompleteRequest.getDocumentId();
+        if (documentId != null) {
+            synchronized (sessions) {
+                session = sessions.computeIfAbsent(documentId, k -> new ParseSession());
             }
         } else {
+            //not kept, a request without a document id has nothing to reuse.
+            session = new ParseSession();
+        }
+        TraceSpan trace = autoCompleteRequest.getTrace();
+        synchronized (session) {
+            AutoCompleteParser parser = new AutoCompleteParser(autoCompleteRequest, name, scriptContents, session, repairExecutor, metrics);
+            List<SourceUnit> sources = parser.parse();
+            if (!parser.getScriptClasses().isEmpty()) {
+                try (TraceSpan span = trace.start("index")) {
+                    session.setScriptIndex(metrics.compile("index", () -> TypeIndex.of(parser.getScriptClasses())));
+                }
+            }
+            //reused from the session when only method bodies or script statements changed.
+            TypeIndex scriptIndex = session.getScriptIndex();
             for (SourceUnit source : sources) {
-                List<Hint> hints = new SourceUnitInspector(source, autoCompleteRequest).scan();
-                if (!hints.isEmpty()) {
-                    return hints;
+                HintRanking hints;
+                try (TraceSpan span = trace.start("inspect")) {
+                    hints = new SourceUnitInspector(source, autoCompleteRequest, scriptContents, scriptIndex, span).scan();
+                }
+                if (hints.size() > 0) {
+                    return page(autoCompleteRequest, hints);
+                }
+            }
+            if (sources.isEmpty()) {
+                //neither the script nor any repair of it compiled, fall back to the tokens before the cursor.
+                try (TraceSpan span = trace.start("inspect").detail("partial")) {
+                    long start = System.nanoTime();
+                    CursorContext context;
+                    try (TraceSpan partial = span.start("partialParse")) {
+                        context = PartialParser.parse(scriptContents, autoCompleteRequest.getLine(), autoCompleteRequest.getCh());
+                    }
+                    HintRanking hints = new SourceUnitInspector(null, autoCompleteRequest, scriptContents, scriptIndex, span).scan(context);
+                    metrics.inspected("partial", System.nanoTime() - start, hints.size());
+                    return page(autoCompleteRequest, hints);
                 }
             }
         }
@@ -137,67 +187,114 @@ public class AutoCompleteAnalyzer implements AutoCloseable {
         return Collections.emptyList();
     }
 
+    //the requested page of the ranked hints, the number of candidates is kept in the request for the response total.
+    private static List<Hint> page(AutoCompleteRequest autoCompleteRequest, HintRanking hints) {
+        autoCompleteRequest.setTotal(hints.size());
+        try (TraceSpan span = autoCompleteRequest.getTrace().start("rank")) {
+            return hints.page(autoCompleteRequest.getOffset(), autoCompleteRequest.getLimit());
+        }
+    }
+
     private class SourceUnitInspector {
 
         private final SourceUnit sourceUnit;
         private final AutoCompleteRequest autoCompleteRequest;
-        private final ScanResult scriptResult;
+        private final TypeIndex scriptIndex;
+        //the inspect step of a traced request, class lookups and filtering are summed into it.
+        private final TraceSpan trace;
         private int lastImportLine;
-        private final List<Hint> hints = new LinkedList<>();
-        private final List<PackageInfo> importedPackages = new LinkedList<>();
-        private final List<ClassInfo> importedClasses = new LinkedList<>();
-        private final List<MethodInfo> importedMethods = new LinkedList<>();
+        private final HintRanking hints;
+        private final List<PackageEntry> importedPackages = new LinkedList<>();
+        private final List<ClassEntry> importedClasses = new LinkedList<>();
+        private final List<MemberEntry> importedMethods = new LinkedList<>();
         private final LinkedList<VariableScope> targetVariableScopes = new LinkedList<>();
-        private final Map<TypeSignature, String> paramNameCache = new HashMap<>();
+        private final Map<String, String> paramNameCache = new HashMap<>();
+        private final Map<String, Set<String>> supertypeCache = new HashMap<>();
         private final Set<String> ignoreVarNames = new HashSet<>();
+        private final Set<ClassEntry> importableClasses = new HashSet<>();
 
         private String constructorHint = null;
         private String propertyHint = null;
 
-        private SourceUnitInspector(SourceUnit sourceUnit, AutoCompleteRequest autoCompleteRequest, ScanResult scriptResult) {
+        private SourceUnitInspector(SourceUnit sourceUnit, AutoCompleteRequest autoCompleteRequest, String scriptContents, TypeIndex scriptIndex, TraceSpan trace) {
             this.sourceUnit = sourceUnit;
             this.autoCompleteRequest = autoCompleteRequest;
-            this.scriptResult = scriptResult;
+            this.hints = new HintRanking(scriptContents);
+            this.scriptIndex = scriptIndex;
+            this.trace = trace;
         }
 
-        private SourceUnitInspector(SourceUnit sourceUnit, AutoCompleteRequest autoCompleteRequest) {
-            this(sourceUnit, autoCompleteRequest, null);
+        //imported and script classes with a simple name starting with prefix, or also camel case matching it, distinct and sorted by name.
+        private List<ClassEntry> allClassInfo(String prefix, boolean camelCase) {
+            long start = trace.isEnabled() ? System.nanoTime() : 0;
+            Map<String, ClassEntry> classInfoMap = new TreeMap<>();
+            if (scriptIndex != null) {
+                for (ClassEntry classInfo : camelCase ? scriptIndex.findClasses(prefix) : scriptIndex.getClasses(prefix)) {
+                    classInfoMap.put(classInfo.getName(), classInfo);
+                }
+            }
+            for (PackageEntry packageInfo : importedPackages) {
+                for (ClassEntry classInfo : camelCase ? packageInfo.findClasses(prefix) : packageInfo.getClasses(prefix)) {
+                    classInfoMap.putIfAbsent(classInfo.getName(), classInfo);
+                }
+            }
+            for (ClassEntry classInfo : importedClasses) {
+                if (classInfo.getSimpleName().startsWith(prefix) || (camelCase && CamelCase.matches(classInfo.getSimpleName(), prefix))) {
+                    classInfoMap.putIfAbsent(classInfo.getName(), classInfo);
+                }
+            }
+            trace.add("lookup", start);
+            return new ArrayList<>(classInfoMap.values());
         }
 
-        private ClassInfoList allClassInfo() {
-            ClassInfoList classInfoList = ClassInfoList.emptyList();
-            List<ClassInfoList> importedClassInfo = new LinkedList<>();
-            for (PackageInfo packageInfo : importedPackages) {
-                importedClassInfo.add(packageInfo.getClassInfo());
-            }
-            Set<ClassInfo> importedClassInfoList = new HashSet<>();
-            for (ClassInfo classInfo : importedClasses) {
-                importedClassInfoList.add(classInfo);
+        private ClassEntry getClassInfo(String className) {
+            long start = trace.isEnabled() ? System.nanoTime() : 0;
+            ClassEntry classInfo = null;
+            if (scriptIndex != null) {
+                classInfo = scriptIndex.getClass(className);
             }
-            importedClassInfo.add(new ClassInfoList(importedClassInfoList));
-            if (scriptResult != null) {
-                importedClassInfo.add(scriptResult.getAllClasses());
+            if (classInfo == null) {
+                classInfo = globalIndex.getClass(className);
             }
-            return classInfoList.union(importedClassInfo.toArray(new ClassInfoList[importedClassInfo.size()]));
+            trace.add("lookup", start);
+            return classInfo;
         }
 
-        private ClassInfo getClassInfo(String className) {
-            ClassInfo classInfo = null;
-            if (scriptResult != null) {
-                classInfo = scriptResult.getClassInfo(className);
+        private int locality(ClassEntry classInfo) {
+            return scriptIndex != null && classInfo.equals(scriptIndex.getClass(classInfo.getName())) ? HintRanking.SCRIPT : HintRanking.IMPORTED;
+        }
+
+        private <T> List<T> filter(List<T> list, Predicate<T> filter) {
+            long start = trace.isEnabled() ? System.nanoTime() : 0;
+            List<T> filtered = AutoCompleteAnalyzer.filter(list, filter);
+            trace.add("filter", start);
+            return filtered;
+        }
+
+        //the packages and classes every Groovy script imports.
+        private void defaultImports() {
+            for (String packagePrefix : ResolveVisitor.DEFAULT_IMPORTS) {
+                PackageEntry packageInfo = globalIndex.getPackage(packagePrefix.substring(0, packagePrefix.length() - 1));
+                if (packageInfo != null) {
+                    importedPackages.add(packageInfo);
+                }
+            }
+            for (String className : List.of(BigDecimal.class.getName(), BigInteger.class.getName())) {
+                ClassEntry classInfo = globalIndex.getClass(className);
                 if (classInfo != null) {
-                    return classInfo;
+                    importedClasses.add(classInfo);
                 }
             }
-            return globalScanResult.getClassInfo(className);
         }
 
-        private List<Hint> scan() {
+        private HintRanking scan() {
             constructorHint = autoCompleteRequest.getConstructorHint();
             propertyHint = autoCompleteRequest.getPropertyHint();
-            importedPackages.add(globalScanResult.getPackageInfo("java.lang"));
+            defaultImports();
             lastImportLine = scanImports();
 
+            long start = System.nanoTime();
+            TraceSpan visit = trace.start("visit");
             AutoCompleteVisitor visitor = new AutoCompleteVisitor(autoCompleteRequest);
             visitor.visitImports(sourceUnit.getAST());
             visitor.getVariableScopes().push(sourceUnit.getAST().getStatementBlock().getVariableScope());
@@ -211,6 +308,11 @@ public class AutoCompleteAnalyzer implements AutoCloseable {
                 }
             }
 
+            visit.close();
+            metrics.visited(System.nanoTime() - start);
+            start = System.nanoTime();
+            String category = "none";
+
             targetVariableScopes.addAll(visitor.getTargetVariableScopes());
             Collections.reverse(targetVariableScopes);
             LinkedList<ASTNode> targetNodes = visitor.getTargetNodes();
@@ -241,6 +343,7 @@ public class AutoCompleteAnalyzer implements AutoCloseable {
 
                         if (node instanceof ConstructorCallExpression) {
                             ConstructorCallExpression constructor = (ConstructorCallExpression) node;
+                            category = "constructor";
                             if (prevNode instanceof VariableExpression) {
                                 newConstructorHint(constructor, (VariableExpression) prevNode);
                             } else if (prevNode instanceof MethodCallExpression) {
@@ -248,21 +351,26 @@ public class AutoCompleteAnalyzer implements AutoCloseable {
                             }
                         } else if (node instanceof MethodCallExpression) {
                             if (propertyHint != null || prevNode instanceof MethodCallExpression) {
+                                category = "methodReturn";
                                 methodReturnHint((MethodCallExpression) node);
                             } else {
+                                category = "method";
                                 methodHint((MethodCallExpression) node);
                             }
 
                         } else if (node instanceof PropertyExpression) {
                             PropertyExpression prop = (PropertyExpression) node;
+                            category = "property";
                             if (prevNode instanceof VariableExpression) {
                                 propertyHint(prop, (VariableExpression) prevNode);
                             } else {
                                 propertyHint(prop);
                             }
                         } else if (node instanceof VariableExpression) {
+                            category = "variable";
                             propertyHint((VariableExpression) node);
                         } else if (node instanceof ImportNode) {
+                            category = "import";
                             importHint((ImportNode) node);
                         }
 
@@ -273,9 +381,91 @@ public class AutoCompleteAnalyzer implements AutoCloseable {
                 logger.warn(String.format("Target ASTNodes unavailable for line %d column %d", autoCompleteRequest.getLine() + 1, autoCompleteRequest.getCh()));
             }
 
+            metrics.inspected(category, System.nanoTime() - start, hints.size());
+            trace.detail(category);
+            return hints;
+        }
+
+        //property hints for the receiver chain before the cursor, resolved from the declarations and imports the PartialParser found.
+        private HintRanking scan(CursorContext context) {
+            defaultImports();
+            for (String packageName : context.getStarImports()) {
+                PackageEntry packageInfo = globalIndex.getPackage(packageName);
+                if (packageInfo != null) {
+                    importedPackages.add(packageInfo);
+                }
+            }
+            for (String className : context.getImports().values()) {
+                ClassEntry classInfo = globalIndex.getClass(className);
+                if (classInfo != null) {
+                    importedClasses.add(classInfo);
+                }
+            }
+            List<Segment> receiver = context.getReceiver();
+            if (receiver.isEmpty()) {
+                return hints;
+            }
+            String clazz = null;
+            int next = 1;
+            Segment first = receiver.get(0);
+            if (first.isConstructor()) {
+                clazz = resolveType(first.getName(), context);
+            } else if (!first.isCall() && context.getVariables().containsKey(first.getName())) {
+                clazz = resolveType(context.getVariables().get(first.getName()), context);
+            } else {
+                //Type.member or a.b.Type.member, the longest leading name that is a class
+                String name = "";
+                for (int i = 0; i < receiver.size() && !receiver.get(i).isCall(); i++) {
+                    name = name.isEmpty() ? receiver.get(i).getName() : name + "." + receiver.get(i).getName();
+                    String resolved = resolveType(name, context);
+                    if (resolved != null) {
+                        clazz = resolved;
+                        next = i + 1;
+                    }
+                }
+            }
+            for (int i = next; i < receiver.size() && clazz != null; i++) {
+                clazz = memberType(clazz, receiver.get(i));
+            }
+            if (logger.isDebugEnabled()) {
+                logger.debug(String.format("Partial parse receiver %s resolved to %s for line %d column %d", receiver.stream().map(Segment::getName).collect(Collectors.joining(".")), clazz, autoCompleteRequest.getLine() + 1, autoCompleteRequest.getCh()));
+            }
+            addPropertyHints(clazz, context.getPartial(), null);
             return hints;
         }
 
+        //the class name of a type as written in the script, null for primitives, arrays and unknown types.
+        private String resolveType(String typeName, CursorContext context) {
+            if (typeName.endsWith("]") || isPrimitive(typeName)) {
+                return null;
+            }
+            int dot = typeName.indexOf('.');
+            String simpleName = dot > 0 ? typeName.substring(0, dot) : typeName;
+            String imported = context.getImports().get(simpleName);
+            if (imported != null) {
+                typeName = imported + typeName.substring(simpleName.length());
+            } else if (dot < 0) {
+                for (ClassEntry classInfo : allClassInfo(typeName, false)) {
+                    if (classInfo.getSimpleName().equals(typeName)) {
+                        return classInfo.getName();
+                    }
+                }
+            }
+            ClassEntry classInfo = getClassInfo(typeName);
+            return classInfo != null ? classInfo.getName() : null;
+        }
+
+        //the class of a method's result or a field, null if it is unknown or the overloads disagree.
+        private String memberType(String clazz, Segment segment) {
+            ClassEntry classInfo = getClassInfo(clazz);
+            if (classInfo == null) {
+                return null;
+            }
+            List<MemberEntry> members = filter(segment.isCall() ? classInfo.getMethods(segment.getName()) : classInfo.getFields(segment.getName()), m -> m.getName().equals(segment.getName()));
+            Set<String> types = members.stream().map(m -> String.valueOf(m.getResultClassName())).collect(Collectors.toSet());
+            return types.size() == 1 && members.get(0).getResultClassName() != null ? members.get(0).getResultClassName() : null;
+        }
+
         private boolean nodeMatch(ASTNode node) {
             int targetLine = autoCompleteRequest.getLine() + 1;
             int targetColumn = autoCompleteRequest.getCh();
@@ -291,7 +481,7 @@ public class AutoCompleteAnalyzer implements AutoCloseable {
             int lastImportLine = 0;
             for (ImportNode i : sourceUnit.getAST().getImports()) {
                 printASTDetails(i, "Import %s\n", i.getPackageName());
-                ClassInfo classInfo = globalScanResult.getClassInfo(i.getType().getTypeClass().getName());
+                ClassEntry classInfo = globalIndex.getClass(i.getType().getTypeClass().getName());
                 if (classInfo != null) {
                     importedClasses.add(classInfo);
                 }
@@ -300,7 +490,7 @@ public class AutoCompleteAnalyzer implements AutoCloseable {
             for (ImportNode i : sourceUnit.getAST().getStarImports()) {
                 printASTDetails(i, "Star Import %s\n", i.getPackageName());
                 String packageName = i.getPackageName().substring(0, i.getPackageName().length() - 1);
-                PackageInfo packageInfo = globalScanResult.getPackageInfo(packageName);
+                PackageEntry packageInfo = globalIndex.getPackage(packageName);
                 if (packageInfo != null) {
                     importedPackages.add(packageInfo);
                 }
@@ -309,18 +499,18 @@ public class AutoCompleteAnalyzer implements AutoCloseable {
             for (Entry<String, ImportNode> i : sourceUnit.getAST().getStaticImports().entrySet()) {
                 String className = i.getValue().getType().getTypeClass().getName();
                 printASTDetails(i.getValue(), "Static Import %s %s\n", i.getKey(), className);
-                ClassInfo classInfo = globalScanResult.getClassInfo(className);
+                ClassEntry classInfo = globalIndex.getClass(className);
                 if (classInfo != null) {
-                    importedMethods.addAll(classInfo.getMethodInfo().filter(m -> m.getName().equals(i.getValue().getAlias())));
+                    importedMethods.addAll(filter(classInfo.getMethods(i.getValue().getAlias()), m -> m.getName().equals(i.getValue().getAlias())));
                 }
                 lastImportLine = i.getValue().getLastLineNumber() > lastImportLine ? i.getValue().getLastLineNumber() : lastImportLine;
             }
             for (Entry<String, ImportNode> i : sourceUnit.getAST().getStaticStarImports().entrySet()) {
                 String className = i.getValue().getType().getTypeClass().getName();
                 printASTDetails(i.getValue(), "Static Star Import %s %s\n", i.getKey(), className);
-                ClassInfo classInfo = globalScanResult.getClassInfo(className);
+                ClassEntry classInfo = globalIndex.getClass(className);
                 if (classInfo != null) {
-                    importedMethods.addAll(classInfo.getMethodInfo());
+                    importedMethods.addAll(classInfo.getMethods());
                 }
                 lastImportLine = i.getValue().getLastLineNumber() > lastImportLine ? i.getValue().getLastLineNumber() : lastImportLine;
             }
@@ -332,31 +522,28 @@ public class AutoCompleteAnalyzer implements AutoCloseable {
             if (importNode.getPackageName() != null) {
                 String packageName = importNode.getPackageName();
                 packageName = packageName.substring(0, packageName.length() - 1);
-                PackageInfo packageInfo = globalScanResult.getPackageInfo(packageName);
+                PackageEntry packageInfo = globalIndex.getPackage(packageName);
                 if (packageInfo != null) {
-                    PackageInfoList childPackageInfoList = packageInfo.getChildren();
-                    ClassInfoList classInfoList = packageInfo.getClassInfo();
-                    //.filter(p-> importHint!=null? p.(): true))
-                    for (PackageInfo childPackageInfo : childPackageInfoList) {
+                    List<PackageEntry> childPackageInfoList = packageInfo.getChildren();
+                    List<ClassEntry> classInfoList = packageInfo.getClasses();
+                    for (PackageEntry childPackageInfo : childPackageInfoList) {
                         String hint = childPackageInfo.getName().substring(packageInfo.getName().length() + 1);
                         StringBuilder display = new StringBuilder(hint).append(" - package");
-                        hints.add(new Hint("import-package", entered, display.toString(), hint));
+                        hints.add(hint, "", HintRanking.IMPORTED, () -> new Hint("import-package", entered, display.toString(), hint));
                     }
-                    for (ClassInfo classInfo : classInfoList) {
+                    for (ClassEntry classInfo : classInfoList) {
                         String hint = classInfo.getSimpleName();
-                        hints.add(new Hint("import-class", entered, hint, hint));
+                        hints.add(hint, "", HintRanking.IMPORTED, () -> new Hint("import-class", entered, hint, hint));
                     }
                 }
             } else {
                 String className = importNode.getType().getTypeClass().getName();
-                ClassInfo classInfo = globalScanResult.getClassInfo(className);
+                ClassEntry classInfo = globalIndex.getClass(className);
                 if (classInfo != null) {
-                    MethodInfoList methods = classInfo.getMethodInfo();
                     //property parser may have inserted underscore placeholder
-                    if (importNode.getAlias() != null) {
-                        methods = methods.filter(m -> m.getName().startsWith(importNode.getAlias()));
-                    }
-                    methods.getNames().stream().distinct().sorted().forEach(method -> hints.add(new Hint("import-method", entered, method, method)));
+                    String alias = importNode.getAlias() != null ? importNode.getAlias() : "";
+                    List<MemberEntry> methods = classInfo.findMethods(alias);
+                    methods.stream().map(MemberEntry::getName).distinct().sorted().forEach(method -> hints.add(method, alias, HintRanking.IMPORTED, () -> new Hint("import-method", entered, method, method)));
                 }
             }
         }
@@ -364,11 +551,10 @@ public class AutoCompleteAnalyzer implements AutoCloseable {
         private void newConstructorHint(ConstructorCallExpression constructorNode, VariableExpression varNode) {
             String varType = varNode.getType().getName();
             boolean isObject = varNode.isDynamicTyped();//java.lang.Object.class.equals(varType);
-            ClassInfoList classInfoList = ClassInfoList.emptyList();
+            List<ClassEntry> classInfoList = Collections.emptyList();
             if (!isObject) {
                 classInfoList = constructorClasses(constructorNode, false);
-                ClassInfo classInfo = getClassInfo(varType);
-                classInfoList = classInfoList.getStandardClasses().getAssignableTo(classInfo);
+                classInfoList = filter(classInfoList, c -> c.isStandardClass() && (c.getName().equals(varType) || c.getSupertypes().contains(varType)));
             } else {
                 classInfoList = constructorClasses(constructorNode, true);
             }
@@ -387,47 +573,68 @@ public class AutoCompleteAnalyzer implements AutoCloseable {
                 }
             }
 
-            ClassInfoList classInfoList = constructorClasses(constructorNode, true);
-            MethodInfoList methods = findMethods(methodNode, true);
-            for (MethodInfo methodInfo : methods) {
-                MethodParameterInfo parameterInfo = methodInfo.getParameterInfo()[constructorIndex];
-                classInfoList = classInfoList.getStandardClasses().filter(c -> isAssignable(c.loadClass(), parameterInfo.getTypeSignatureOrTypeDescriptor()));
+            List<ClassEntry> classInfoList = constructorClasses(constructorNode, true);
+            List<MemberEntry> methods = findMethods(methodNode, true);
+            for (MemberEntry methodInfo : methods) {
+                String parameterType = methodInfo.getParameterTypeName(constructorIndex);
+                classInfoList = filter(classInfoList, c -> c.isStandardClass() && isAssignable(c.getName(), parameterType));
                 constructorHints(classInfoList, (ArgumentListExpression) constructorNode.getArguments());
             }
         }
 
-        private ClassInfoList constructorClasses(ConstructorCallExpression constructorNode, boolean restricted) {
+        private List<ClassEntry> constructorClasses(ConstructorCallExpression constructorNode, boolean restricted) {
             String constType = constructorNode.getType().getTypeClass().getName();
             if (!Object.class.getName().equals(constType)) {
-                ClassInfoList list = new ClassInfoList();
-                list.add(getClassInfo(constType));
-                return list;
+                ClassEntry classInfo = getClassInfo(constType);
+                return classInfo != null ? Collections.singletonList(classInfo) : Collections.emptyList();
             } else if (!constructorHint.isBlank() || !restricted) {
-                ClassInfoList classInfoList = allClassInfo();
-                if (!constructorHint.isBlank()) {
-                    classInfoList = classInfoList.filter(c -> c.getSimpleName().startsWith(constructorHint));
+                List<ClassEntry> classInfoList = allClassInfo(constructorHint.isBlank() ? "" : constructorHint, true);
+                boolean importable = autoCompleteRequest.getAutoImport() != null ? autoCompleteRequest.getAutoImport() : autoImport;
+                if (importable && !constructorHint.isBlank()) {
+                    classInfoList.addAll(importableClassInfo(constructorHint, classInfoList));
                 }
                 return classInfoList;
             }
-            return ClassInfoList.emptyList();
+            return Collections.emptyList();
+        }
+
+        //public classes matching hint that are not imported, found through the simple name order of the global index instead of a scan of all classes.
+        //Classes with the simple name of an imported class are left out as their import would conflict.
+        private List<ClassEntry> importableClassInfo(String hint, List<ClassEntry> imported) {
+            Set<String> importedNames = new HashSet<>();
+            for (ClassEntry classInfo : imported) {
+                importedNames.add(classInfo.getSimpleName());
+            }
+            List<ClassEntry> importable = new ArrayList<>();
+            for (ClassEntry classInfo : globalIndex.findClasses(hint)) {
+                if (Modifier.isPublic(classInfo.getModifiers()) && !importedNames.contains(classInfo.getSimpleName())) {
+                    importable.add(classInfo);
+                    importableClasses.add(classInfo);
+                }
+            }
+            return importable;
         }
 
         private void propertyHint(VariableExpression var) {
             if (var.isDynamicTyped()) {
                 if (var.getAccessedVariable() instanceof DynamicVariable) {
                     DynamicVariable dvar = (DynamicVariable) var.getAccessedVariable();
-                    List<MethodInfo> methodList = new LinkedList<>();
+                    List<MemberEntry> methodList = new LinkedList<>();
                     for (Entry<String, ImportNode> importMethod : sourceUnit.getAST().getStaticImports().entrySet()) {
-                        if (importMethod.getKey().startsWith(dvar.getName())) {
-                            ClassInfo classInfo = getClassInfo(importMethod.getValue().getType().getName());
-                            classInfo.getMethodInfo().filter(mi -> mi.getName().equals(importMethod.getKey())).forEach(mi -> methodList.add(mi));
+                        if (importMethod.getKey().startsWith(dvar.getName()) || CamelCase.matches(importMethod.getKey(), dvar.getName())) {
+                            ClassEntry classInfo = getClassInfo(importMethod.getValue().getType().getName());
+                            if (classInfo != null) {
+                                methodList.addAll(filter(classInfo.getMethods(importMethod.getKey()), mi -> mi.getName().equals(importMethod.getKey())));
+                            }
                         }
                     }
                     for (Entry<String, ImportNode> importMethod : sourceUnit.getAST().getStaticStarImports().entrySet()) {
-                        ClassInfo classInfo = getClassInfo(importMethod.getKey());
-                        classInfo.getMethodInfo().filter(mi -> mi.getName().startsWith(dvar.getName())).forEach(mi -> methodList.add(mi));
+                        ClassEntry classInfo = getClassInfo(importMethod.getKey());
+                        if (classInfo != null) {
+                            methodList.addAll(classInfo.findMethods(dvar.getName()));
+                        }
                     }
-                    methodHints(dvar.getName(), new MethodInfoList(methodList), new ArgumentListExpression());
+                    methodHints(dvar.getName(), methodList, new ArgumentListExpression());
                 }
             } else {
                 String clazz = var.getType().getName();
@@ -436,28 +643,30 @@ public class AutoCompleteAnalyzer implements AutoCloseable {
 
         }
 
-        private void addPropertyHints(String clazz, String propertyName, MethodInfoFilter filter) {
+        private void addPropertyHints(String clazz, String propertyName, Predicate<MemberEntry> filter) {
             if (clazz != null && !Object.class.getName().equals(clazz)) {
-                ClassInfo classInfo = getClassInfo(clazz);
-                MethodInfoList methodList = classInfo.getMethodInfo().filter(m -> m.getName().startsWith(propertyName));
-                if (filter != null) {
-                    methodList = methodList.filter(filter);
+                ClassEntry classInfo = getClassInfo(clazz);
+                if (classInfo != null) {
+                    List<MemberEntry> methodList = classInfo.findMethods(propertyName);
+                    if (filter != null) {
+                        methodList = filter(methodList, filter);
+                    }
+                    methodHints(propertyName, methodList, new ArgumentListExpression());
+                    fieldHints(propertyName, classInfo.findFields(propertyName));
                 }
-                methodHints(propertyName, methodList, new ArgumentListExpression());
-                fieldHints(propertyName, classInfo.getFieldInfo());
             }
         }
 
         private void propertyHint(PropertyExpression prop, VariableExpression var) {
-            Class<?> returnType = var.getType().getTypeClass();
-            propertyHint(prop, (m) -> isAssignable(returnType, m.getTypeDescriptor().getResultType()));
+            String returnType = var.getType().getTypeClass().getName();
+            propertyHint(prop, (m) -> isAssignable(returnType, m.getTypeName()));
         }
 
         private void propertyHint(PropertyExpression prop) {
-            propertyHint(prop, (MethodInfoFilter) null);
+            propertyHint(prop, (Predicate<MemberEntry>) null);
         }
 
-        private void propertyHint(PropertyExpression prop, MethodInfoFilter filter) {
+        private void propertyHint(PropertyExpression prop, Predicate<MemberEntry> filter) {
             String clazz = null;
             if (prop.getObjectExpression() instanceof VariableExpression) {
                 VariableExpression varNode = (VariableExpression) prop.getObjectExpression();
@@ -500,30 +709,26 @@ public class AutoCompleteAnalyzer implements AutoCloseable {
             final int fparameterIndex = parameterIndex;
             String methodHintValue = ((ConstantExpression) methodNode.getMethod()).getText();
 
-            MethodInfoList methodList = findMethods(methodNode, false);
-            methodList = methodList.filter(m -> m.getParameterInfo().length > fparameterIndex);
+            List<MemberEntry> methodList = findMethods(methodNode, false);
+            methodList = filter(methodList, m -> m.getParameterCount() > fparameterIndex);
             methodHints(methodHintValue, methodList, argumentExpressions);
 
         }
 
         private String methodReturnType(MethodCallExpression methodNode) {
-            MethodInfoList methodList = findMethods(methodNode, true);
+            List<MemberEntry> methodList = findMethods(methodNode, true);
             if (methodList.size() == 1) {
-                TypeSignature returnType = methodList.get(0).getTypeDescriptor().getResultType();
-                if (returnType instanceof ClassRefTypeSignature) {
-                    return ((ClassRefTypeSignature) returnType).getClassInfo().getName();
-
-                }
+                return methodList.get(0).getResultClassName();
             }
             return null;
         }
 
-        private MethodInfoList findMethods(MethodCallExpression methodNode, boolean exact) {
+        private List<MemberEntry> findMethods(MethodCallExpression methodNode, boolean exact) {
             ArgumentListExpression argumentExpressions = (ArgumentListExpression) methodNode.getArguments();
             ConstantExpression methodReference = (ConstantExpression) methodNode.getMethod();
             String methodName = (String) methodReference.getValue();
             String clazz = null;
-            List<MethodInfo> localMethods = new LinkedList<>();
+            List<MemberEntry> localMethods = new LinkedList<>();
             if (methodNode.getObjectExpression() instanceof VariableExpression) {
                 VariableExpression varNode = (VariableExpression) methodNode.getObjectExpression();
                 if (varNode.getAccessedVariable() instanceof VariableExpression) {
@@ -542,79 +747,77 @@ public class AutoCompleteAnalyzer implements AutoCloseable {
                 clazz = methodReturnType((MethodCallExpression) methodNode.getObjectExpression());
             }
             if (clazz == null || Object.class.getName().equals(clazz)) {
-                return MethodInfoList.emptyList();
+                return Collections.emptyList();
             }
-            ClassInfo classInfo = getClassInfo(clazz);
-            //may be null due to script class reference but a full class generation was not performed.
+            ClassEntry classInfo = getClassInfo(clazz);
+            //may be null due to script class reference of a simple script whose classes are not indexed.
             if (classInfo != null) {
                 final int size = argumentExpressions.getExpressions().size();
-                MethodInfoFilter nameFilter = (m) -> m.getName().startsWith(methodName);
-                MethodInfoFilter countFilter = (m) -> exact ? m.getParameterInfo().length == size : m.getParameterInfo().length >= size;
-                MethodInfoFilter typeFilter = (m) -> {
+                Predicate<MemberEntry> countFilter = (m) -> exact ? m.getParameterCount() == size : m.getParameterCount() >= size;
+                Predicate<MemberEntry> typeFilter = (m) -> {
                     if (m.isSynthetic()) {
                         return false;
                     }
                     boolean matches = true;
                     for (int i = 0; i < argumentExpressions.getExpressions().size(); i++) {
                         Expression arg = argumentExpressions.getExpression(i);
-                        Class<?> argType = arg.getType().getTypeClass();
-                        if (!Object.class.equals(argType)) {
-                            MethodParameterInfo paramInfo = m.getParameterInfo()[i];
-                            if (!isAssignable(argType, paramInfo.getTypeSignatureOrTypeDescriptor())) {
+                        String argType = arg.getType().getTypeClass().getName();
+                        if (!Object.class.getName().equals(argType)) {
+                            if (!isAssignable(argType, m.getDescriptor().getParameterTypeName(i))) {
                                 matches = false;
                             }
                         }
                     }
                     return matches;
                 };
-                MethodInfoList infoList = classInfo.getMethodInfo().filter(m -> nameFilter.accept(m) && countFilter.accept(m) && typeFilter.accept(m));
+                List<MemberEntry> infoList = filter(exact ? classInfo.getMethods(methodName) : classInfo.findMethods(methodName), m -> countFilter.test(m) && typeFilter.test(m));
                 infoList.addAll(localMethods);
                 return infoList;
             } else {
-                return new MethodInfoList(localMethods);
+                return localMethods;
             }
         }
 
-        private void constructorHints(ClassInfoList classInfoList, ArgumentListExpression argumentExpressions) {
-            for (ClassInfo classInfo : classInfoList) {
-                for (MethodInfo constInfo : classInfo.getConstructorInfo()) {
-                    addHint(constructorHint != null ? constructorHint : "", classInfo.getName(), classInfo.getSimpleName(), constInfo, argumentExpressions);
+        private void constructorHints(List<ClassEntry> classInfoList, ArgumentListExpression argumentExpressions) {
+            for (ClassEntry classInfo : classInfoList) {
+                String importValue = importableClasses.contains(classInfo) ? "import " + classInfo.getName().replace('$', '.') : null;
+                for (MemberEntry constInfo : classInfo.getConstructors()) {
+                    addHint(constructorHint != null ? constructorHint : "", classInfo.getName(), classInfo.getSimpleName(), constInfo, argumentExpressions, importValue);
                 }
             }
         }
 
-        private void methodHints(String methodHint, MethodInfoList methodList, ArgumentListExpression argumentExpressions) {
-            for (MethodInfo methodInfo : methodList) {
-                addHint(methodHint, methodInfo.getName(), methodInfo.getName(), methodInfo, argumentExpressions);
+        private void methodHints(String methodHint, List<MemberEntry> methodList, ArgumentListExpression argumentExpressions) {
+            for (MemberEntry methodInfo : methodList) {
+                addHint(methodHint, methodInfo.getName(), methodInfo.getName(), methodInfo, argumentExpressions, null);
             }
         }
 
-        private void addHint(String hint, String displayed2, String value2, MethodInfo methodInfo, ArgumentListExpression argumentExpressions) {
-            StringBuilder displayed = new StringBuilder(displayed2).append("(");
-            StringBuilder value = new StringBuilder(value2).append("(");
-            for (int i = 0; i < methodInfo.getParameterInfo().length; i++) {
-                MethodParameterInfo param = methodInfo.getParameterInfo()[i];
-                String paramName = argumentParameterName(i, param.getTypeSignatureOrTypeDescriptor(), argumentExpressions);
-                if (paramName == null) {
-                    paramName = variableParameterName(param.getTypeSignatureOrTypeDescriptor());
-                }
+        private void addHint(String hint, String displayed2, String value2, MemberEntry methodInfo, ArgumentListExpression argumentExpressions, String importValue) {
+            int locality = importValue != null ? HintRanking.IMPORTABLE : locality(methodInfo.getOwner());
+            hints.add(value2, hint, locality, () -> hint(hint, displayed2, value2, methodInfo, argumentExpressions, importValue));
+        }
+
+        //the hint text of a method or constructor, only built for the hints on the requested page. The import is added after the last import line.
+        private Hint hint(String hint, String displayed2, String value2, MemberEntry methodInfo, ArgumentListExpression argumentExpressions, String importValue) {
+            MemberDescriptor descriptor = methodInfo.getDescriptor();
+            //only parameter names taken from the arguments or variables in scope differ from the precomputed text.
+            String[] paramNames = null;
+            for (int i = 0; i < descriptor.getArity(); i++) {
+                String paramName = argumentParameterName(i, argumentExpressions);
                 if (paramName == null) {
-                    paramName = param.getName() != null ? param.getName() : "param" + (i > 0 ? i + 1 : "");
+                    paramName = variableParameterName(descriptor.getParameterTypeName(i));
                 }
-                displayed.append(param.getTypeSignatureOrTypeDescriptor().toStringWithSimpleNames()).append(" ").append(paramName);
-                value.append(paramName);
-                if (i != methodInfo.getParameterInfo().length - 1) {
-                    displayed.append(", ");
-                    value.append(", ");
+                if (paramName != null) {
+                    paramNames = paramNames != null ? paramNames : descriptor.getParameterNames();
+                    paramNames[i] = paramName;
                 }
             }
-            displayed.append(")");
-            value.append(")");
-            boolean isConstructor = methodInfo.getName().startsWith("<");
-            if (methodInfo.getTypeSignatureOrTypeDescriptor() != null && !isConstructor) {
-                displayed.append(" - ").append(methodInfo.getTypeSignatureOrTypeDescriptor().getResultType().toStringWithSimpleNames());
-            }
-            int[] entered = new int[] { 0, hint.length() };
+            String displayed = displayed2 + (paramNames != null ? descriptor.displayed(paramNames) : descriptor.getDisplayed());
+            String value = value2 + (paramNames != null ? descriptor.value(paramNames) : descriptor.getValue());
+            boolean isConstructor = descriptor.isConstructor();
+            //a camel case match has no entered prefix to highlight.
+            int[] entered = new int[] { 0, value2.startsWith(hint) ? hint.length() : 0 };
             if (isConstructor) {
                 int offset = displayed2.lastIndexOf('.');
                 if (offset > 0) {
@@ -622,26 +825,19 @@ public class AutoCompleteAnalyzer implements AutoCloseable {
                 }
 
             }
-            hints.add(new Hint(isConstructor ? "constructor" : "method", entered, displayed.toString(), value.toString()));
-
+            return new Hint(isConstructor ? "constructor" : "method", entered, displayed, value, importValue, importValue != null ? lastImportLine : -1);
         }
 
-        private void fieldHints(String hint, FieldInfoList fieldList) {
-            fieldList = fieldList.filter(m -> m.getName().startsWith(hint));
-            for (FieldInfo fieldInfo : fieldList) {
-                StringBuilder displayed = new StringBuilder();
-                StringBuilder value = new StringBuilder();
-                displayed.append(fieldInfo.getTypeDescriptor().toStringWithSimpleNames()).append(" ");
-                int offset = displayed.length();
-                displayed.append(fieldInfo.getName());
-                value.append(fieldInfo.getName());
-                int[] entered = new int[] { offset, hint.length() };
-                hints.add(new Hint("field", entered, displayed.toString(), value.toString()));
+        private void fieldHints(String hint, List<MemberEntry> fieldList) {
+            for (MemberEntry fieldInfo : fieldList) {
+                MemberDescriptor descriptor = fieldInfo.getDescriptor();
+                int[] entered = new int[] { descriptor.getNameOffset(), fieldInfo.getName().startsWith(hint) ? hint.length() : 0 };
+                hints.add(fieldInfo.getName(), hint, locality(fieldInfo.getOwner()), () -> new Hint("field", entered, descriptor.getDisplayed(), descriptor.getValue()));
             }
         }
 
         //Java code should be compiled with -parameters option. The same option should be set on the Groovy CompilerConfiguration
-        private String argumentParameterName(int paramIndex, TypeSignature type, ArgumentListExpression argumentExpressions) {
+        private String argumentParameterName(int paramIndex, ArgumentListExpression argumentExpressions) {
             if (paramIndex < argumentExpressions.getExpressions().size()) {
                 Expression argument = argumentExpressions.getExpressions().get(paramIndex);
                 if (argument instanceof ConstantExpression) {
@@ -656,19 +852,19 @@ public class AutoCompleteAnalyzer implements AutoCloseable {
             return null;
         }
 
-        private String variableParameterName(TypeSignature type) {
-            return paramNameCache.computeIfAbsent(type, k -> findScopedVariableName(type));
+        private String variableParameterName(String typeName) {
+            return paramNameCache.computeIfAbsent(typeName, k -> findScopedVariableName(typeName));
         }
 
-        private String findScopedVariableName(TypeSignature type) {
+        private String findScopedVariableName(String typeName) {
             for (VariableScope varScope : targetVariableScopes) {
                 Iterator<Variable> iterator = varScope.getDeclaredVariablesIterator();
                 while (iterator.hasNext()) {
                     Variable var = iterator.next();
                     if (!var.isDynamicTyped()) {
                         if (!ignoreVarNames.contains(var.getName())) {
-                            Class<?> varTypeClass = var.getType().getTypeClass();
-                            if (isAssignable(varTypeClass, type)) {
+                            String varTypeName = var.getType().getTypeClass().getName();
+                            if (isAssignable(varTypeName, typeName)) {
                                 return var.getName();
                             }
                         }
@@ -678,44 +874,59 @@ public class AutoCompleteAnalyzer implements AutoCloseable {
             return null;
         }
 
-    }
-
-    private static boolean isAssignable(Class<?> clazz, TypeSignature type) {
-        if (type instanceof ArrayTypeSignature) {
-            ArrayTypeSignature arrayTypeSignature = (ArrayTypeSignature) type;
-            if (clazz.isAssignableFrom(arrayTypeSignature.loadClass())) {
-                return true;
-            }
-        } else if (type instanceof BaseTypeSignature) {
-            BaseTypeSignature baseTypeSignature = (BaseTypeSignature) type;
-            if (clazz.isPrimitive()) {
-                clazz = WRAPPER_TYPES.get(clazz);
-            }
-            if (clazz.equals(WRAPPER_TYPES.get(baseTypeSignature.getType()))) {
-                return true;
+        //typeName is an erased TypeIndex type name, type variables are erased to their bound.
+        //Answered from the script and global TypeIndex supertypes so the request thread never loads or initializes classes.
+        private boolean isAssignable(String className, String typeName) {
+            Class<?> primitive = PRIMITIVE_TYPES.get(typeName);
+            if (primitive != null) {
+                return wrapperName(className).equals(WRAPPER_TYPES.get(primitive).getName());
             }
-        } else if (type instanceof ClassRefTypeSignature) {
-            ClassRefTypeSignature classRefTypeSignature = (ClassRefTypeSignature) type;
-            if (clazz.isAssignableFrom(classRefTypeSignature.loadClass())) {
+            if (className.equals(typeName) || (Object.class.getName().equals(className) && !isPrimitive(typeName))) {
                 return true;
             }
-        } else if (type instanceof TypeVariableSignature) {
-            TypeVariableSignature typeVariableSignature = (TypeVariableSignature) type;
-            System.err.format("TypeVariable - unable to match %s\n", typeVariableSignature);
-            TypeParameter typeParameter = typeVariableSignature.resolve();
-            if (isAssignable(clazz, typeParameter.getClassBound())) {
-                return true;
+            if (className.startsWith("[L") && typeName.startsWith("[L")) {
+                return isAssignable(className.substring(2, className.length() - 1), typeName.substring(2, typeName.length() - 1));
             }
-            for (ReferenceTypeSignature interfaze : typeParameter.getInterfaceBounds()) {
-                if (isAssignable(clazz, interfaze)) {
-                    return true;
+            return !typeName.startsWith("[") && supertypes(typeName).contains(className);
+        }
+
+        //all superclasses and interfaces of the class, following supertypes the scan did not resolve itself.
+        private Set<String> supertypes(String className) {
+            Set<String> supertypes = supertypeCache.get(className);
+            if (supertypes == null) {
+                supertypes = new HashSet<>();
+                LinkedList<String> pending = new LinkedList<>();
+                pending.add(className);
+                while (!pending.isEmpty()) {
+                    ClassEntry classInfo = getClassInfo(pending.removeFirst());
+                    if (classInfo != null) {
+                        for (String supertype : classInfo.getSupertypes()) {
+                            if (supertypes.add(supertype)) {
+                                pending.add(supertype);
+                            }
+                        }
+                    }
                 }
+                supertypeCache.put(className, supertypes);
             }
+            return supertypes;
         }
-        return false;
 
     }
 
+    private static <T> List<T> filter(List<T> list, Predicate<T> filter) {
+        return list.stream().filter(filter).collect(Collectors.toCollection(ArrayList::new));
+    }
+
+    static boolean isPrimitive(String typeName) {
+        return PRIMITIVE_TYPES.containsKey(typeName);
+    }
+
+    private static String wrapperName(String typeName) {
+        Class<?> primitive = PRIMITIVE_TYPES.get(typeName);
+        return primitive != null ? WRAPPER_TYPES.get(primitive).getName() : typeName;
+    }
+
     static void printASTDetails(ASTNode e, String format, Object... args) {
         if (logger.isDebugEnabled()) {
             Object[] lineArgs = new Object[] { e.getLineNumber(), e.getLastLineNumber(), e.getColumnNumber(), e.getLastColumnNumber(), e.getText() };
@@ -726,4 +937,4 @@ public class AutoCompleteAnalyzer implements AutoCloseable {
         }
     }
 
-}
\ No newline at end of file
+}
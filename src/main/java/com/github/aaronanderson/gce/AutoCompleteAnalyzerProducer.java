@@ -0,0 +1,78 @@
+package com.github.aaronanderson.gce;
+
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.inject.Disposes;
+import javax.enterprise.inject.Produces;
+import javax.inject.Singleton;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+
+//The ClassGraph scan of the JDK and application classpath is expensive so a single AutoCompleteAnalyzer is shared by all requests. It is created on first use and closed on shutdown.
+@ApplicationScoped
+public class AutoCompleteAnalyzerProducer {
+
+    static Logger logger = Logger.getLogger(AutoCompleteAnalyzerProducer.class);
+
+    @ConfigProperty(name = "gce.scan.autoImport", defaultValue = "false")
+    boolean autoImport;
+
+    @ConfigProperty(name = "gce.scan.acceptPackages")
+    Optional<List<String>> acceptPackages;
+
+    @ConfigProperty(name = "gce.scan.rejectPackages")
+    Optional<List<String>> rejectPackages;
+
+    @ConfigProperty(name = "gce.scan.indexFile")
+    Optional<String> indexFile;
+
+    @ConfigProperty(name = "gce.hint.sessionCacheSize", defaultValue = "100")
+    int sessionCacheSize;
+
+    @ConfigProperty(name = "gce.hint.percentiles", defaultValue = "0.5,0.95,0.99")
+    List<Double> percentiles;
+
+    @Produces
+    @Singleton
+    public AutoCompleteAnalyzer autoCompleteAnalyzer(MeterRegistry registry) {
+        long start = System.currentTimeMillis();
+        AutoCompleteAnalyzer autoCompleteAnalyzer = new AutoCompleteAnalyzer(autoImport, acceptPackages.orElse(Collections.emptyList()), rejectPackages.orElse(Collections.emptyList()), indexFile.map(Paths::get).orElse(null), registry, sessionCacheSize);
+        logger.infof("ClassGraph scan completed in %d ms", System.currentTimeMillis() - start);
+        return autoCompleteAnalyzer;
+    }
+
+    //publishes the configured percentiles of the hint stage timers and hint counts.
+    @Produces
+    @Singleton
+    public MeterFilter hintPercentiles() {
+        double[] hintPercentiles = percentiles.stream().mapToDouble(Double::doubleValue).toArray();
+        return new MeterFilter() {
+            @Override
+            public DistributionStatisticConfig configure(Meter.Id id, DistributionStatisticConfig config) {
+                if (id.getName().startsWith(HintMetrics.PREFIX)) {
+                    return DistributionStatisticConfig.builder().percentiles(hintPercentiles).build().merge(config);
+                }
+                return config;
+            }
+        };
+    }
+
+    public void close(@Disposes AutoCompleteAnalyzer autoCompleteAnalyzer) {
+        try {
+            autoCompleteAnalyzer.close();
+        } catch (Exception e) {
+            logger.error("Unable to close AutoCompleteAnalyzer", e);
+        }
+    }
+
+}
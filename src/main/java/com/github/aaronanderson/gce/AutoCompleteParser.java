@@ -1,19 +1,18 @@
 package com.github.aaronanderson.gce;
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.StringReader;
-import java.net.MalformedURLException;
-import java.net.URL;
-import java.net.URLConnection;
-import java.net.URLStreamHandler;
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -25,11 +24,11 @@ import org.codehaus.groovy.control.CompilationFailedException;
 import org.codehaus.groovy.control.CompilationUnit;
 import org.codehaus.groovy.control.CompilationUnit.IPrimaryClassNodeOperation;
 import org.codehaus.groovy.control.CompilationUnit.ISourceUnitOperation;
-import org.codehaus.groovy.control.CompilerConfiguration;
 import org.codehaus.groovy.control.MultipleCompilationErrorsException;
 import org.codehaus.groovy.control.Phases;
 import org.codehaus.groovy.control.SourceUnit;
-import org.codehaus.groovy.tools.GroovyClass;
+
+import io.micrometer.core.instrument.Metrics;
 
 class AutoCompleteParser {
 
@@ -40,14 +39,24 @@ class AutoCompleteParser {
     private final AutoCompleteRequest autoCompleteRequest;
     private final String name;
     private final String scriptContents;
+    private final ParseSession session;
+    private final Executor repairExecutor;
+    private final HintMetrics metrics;
 
     private final List<SourceUnit> sourceUnits = new LinkedList<>();
-    private final List<GroovyClass> groovyClasses = new LinkedList<>();
+    private final List<ClassNode> scriptClasses = new LinkedList<>();
 
     AutoCompleteParser(AutoCompleteRequest autoCompleteRequest, String name, String scriptContents) {
+        this(autoCompleteRequest, name, scriptContents, new ParseSession(), Runnable::run, new HintMetrics(Metrics.globalRegistry));
+    }
+
+    AutoCompleteParser(AutoCompleteRequest autoCompleteRequest, String name, String scriptContents, ParseSession session, Executor repairExecutor, HintMetrics metrics) {
         this.autoCompleteRequest = autoCompleteRequest;
         this.name = name;
         this.scriptContents = scriptContents;
+        this.session = session;
+        this.repairExecutor = repairExecutor;
+        this.metrics = metrics;
         //source = sourceUnit;
     }
 
@@ -55,81 +64,184 @@ class AutoCompleteParser {
         return sourceUnits;
     }
 
-    public List<GroovyClass> getGroovyClasses() {
-        return groovyClasses;
+    //classes declared by an advanced script, compiled to CANONICALIZATION.
+    public List<ClassNode> getScriptClasses() {
+        return scriptClasses;
     }
 
+    //the compile and repair steps are traced under a single parse step.
     List<SourceUnit> parse() {
-        try {
-            compile(scriptContents);
-        } catch (MultipleCompilationErrorsException me) {
-            if (me.getErrorCollector().getErrorCount() == 1) {
-                //attempt to adjust source so that it compiles
-                try {
-                    List<String> lines = IOUtils.readLines(new StringReader(scriptContents));
-                    boolean handled = methodParamHint(lines);
-                    handled = handled || importHint(lines);//needs to be before the property hint
-                    handled = handled || propertyHint(lines);
-                    handled = handled || constructorHint(lines);
-                } catch (IOException e) {
-                    AutoCompleteAnalyzer.logger.error("Unable to read script contents", e);
+        try (TraceSpan trace = autoCompleteRequest.getTrace().start("parse")) {
+            try (TraceSpan span = trace.start("compile")) {
+                compile(scriptContents, span);
+            } catch (MultipleCompilationErrorsException me) {
+                //kept so a combined validate and hint request reports the errors without compiling again.
+                autoCompleteRequest.setErrorCollector(me.getErrorCollector());
+                if (me.getErrorCollector().getErrorCount() == 1) {
+                    //attempt to adjust source so that it compiles
+                    try {
+                        List<String> lines = IOUtils.readLines(new StringReader(scriptContents));
+                        //each repair adjusts the line left by the previous ones, the first repair that compiles is used.
+                        List<Repair> repairs = new ArrayList<>();
+                        addRepair(repairs, () -> methodParamHint(lines));
+                        addRepair(repairs, () -> importHint(lines));//needs to be before the property hint
+                        addRepair(repairs, () -> propertyHint(lines));
+                        addRepair(repairs, () -> constructorHint(lines));
+                        try (TraceSpan span = trace.start("repairs")) {
+                            repair(repairs, span);
+                        }
+                    } catch (IOException e) {
+                        AutoCompleteAnalyzer.logger.error("Unable to read script contents", e);
+                    }
                 }
             }
         }
         return sourceUnits;
     }
 
-    private void compile(String compileScript) throws CompilationFailedException {
+    private void compile(String compileScript, TraceSpan span) throws CompilationFailedException {
+        if (!reuse(compileScript)) {
+            accept(compileScript, metrics.compile("canonicalization", () -> canonicalize(compileScript)));
+        } else {
+            span.detail("session");
+        }
+    }
+
+    //the same text, original or repaired, was successfully compiled by the previous request for this document.
+    private boolean reuse(String compileScript) {
+        if (compileScript.equals(session.getScript())) {
+            sourceUnits.addAll(session.getSourceUnits());
+            return true;
+        }
+        return false;
+    }
+
+    private CompilationUnit canonicalize(String compileScript) throws CompilationFailedException {
+        return canonicalize(compileScript, () -> false);
+    }
+
+    //compiles the script to CANONICALIZATION without touching the parser or session state, so repairs can be compiled concurrently.
+    //Throws CancellationException after the phase during which cancelled became true.
+    private CompilationUnit canonicalize(String compileScript, BooleanSupplier cancelled) throws CompilationFailedException {
         //GroovyCodeSource codeSource = new GroovyCodeSource(scriptContents, name, GroovyShell.DEFAULT_CODE_BASE);
         //CompilationUnit compileUnit = new CompilationUnit(cfg, codeSource.getCodeSource(), gcl);
         //compileUnit.addSource(codeSource.getName(), codeSource.getScriptText());
-        CompilerConfiguration cfg = new CompilerConfiguration();
-        cfg.setParameters(true);
-        cfg.setPreviewFeatures(true);
-        CompilationUnit compileUnit = new CompilationUnit(cfg);
+        //the validation settings, validate-hint caches the diagnostics of this compile for /gce/validate.
+        CompilationUnit compileUnit = new CompilationUnit(ScriptValidator.compilerConfiguration());
         compileUnit.addSource(name, compileScript);
+        compileUnit.setProgressCallback((context, phase) -> {
+            if (cancelled.getAsBoolean()) {
+                throw new CancellationException();
+            }
+        });
         //first parse source to build AST tree.
         compileUnit.compile(Phases.CANONICALIZATION);
+        return compileUnit;
+    }
+
+    private void accept(String compileScript, CompilationUnit compileUnit) throws CompilationFailedException {
+        List<SourceUnit> compiledUnits = new LinkedList<>();
+        compileUnit.iterator().forEachRemaining(compiledUnits::add);
         //second check source for structures outside of the main block statement.
         boolean advancedScript = false;
-        Iterator<SourceUnit> i = compileUnit.iterator();
-        while (i.hasNext()) {
-            SourceUnit sourceUnit = i.next();
+        for (SourceUnit sourceUnit : compiledUnits) {
             if (sourceUnit.getAST().getMethods().size() > 0 || sourceUnit.getAST().getClasses().size() > 1) {
-                //script functions or classes declared, fully compile the source so that ClassPath can be used for further hint introspection    
+                //script functions or classes declared, their members are indexed for further hint introspection
                 advancedScript = true;
             }
         }
-        //third compile advanced scripts so all methods and inner classes are available for scanning by ClassGraph
-        GCEClassLoader cl = new GCEClassLoader();
-        if (advancedScript) {
-            //compileUnit.addPhaseOperation(new AutoCompleteClassOperation(), Phases.FINALIZATION);
-            compileUnit.compile(Phases.CLASS_GENERATION);
-            for (GroovyClass clazz : compileUnit.getClasses()) {
-                groovyClasses.add(clazz);
-                cl.addClasspathEntry(clazz);
-            }
+        //third index the canonicalized script classes, read from the AST without class generation. Skipped when the declarations are unchanged since the session's script classes were indexed.
+        String signature = advancedScript ? ParseSession.signature(compiledUnits) : null;
+        if (advancedScript && (!signature.equals(session.getSignature()) || session.getScriptIndex() == null)) {
+            scriptClasses.addAll(compileUnit.getAST().getClasses());
         }
-        //forth advanced script compilation was not necessary go back and analyze the source.
-        i = compileUnit.iterator();
-        while (i.hasNext()) {
-            sourceUnits.add(i.next());
+        sourceUnits.addAll(compiledUnits);
+        session.update(compileScript, compiledUnits, signature);
+    }
+
+    //the repairs that apply, in order. A repair that fails on the adjusted line counts as not applicable, as it never compiles.
+    private void addRepair(List<Repair> repairs, Callable<Repair> repair) {
+        try {
+            Repair candidate = repair.call();
+            if (candidate != null) {
+                repairs.add(candidate);
+            }
+        } catch (Exception e) {
+            AutoCompleteAnalyzer.logger.debugf(e, "Repair not applicable to %s", name);
         }
     }
 
-    private boolean compileUpdate(List<String> lines) {
-        String newScript = lines.stream().collect(Collectors.joining("\n"));
+    //the candidates after the first are compiled on the repair executor while the first is compiled here. The first one in order that compiles wins,
+    //as if they had been tried one after another. A candidate the executor has not started yet when its turn comes, or that it discarded, is compiled here instead.
+    //Once a candidate wins the others are cancelled: queued ones are removed and running ones stop after their current compile phase.
+    private void repair(List<Repair> repairs, TraceSpan trace) {
+        ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
+        for (Repair repair : repairs.subList(Math.min(1, repairs.size()), repairs.size())) {
+            if (!repair.script.equals(session.getScript())) {
+                repair.task = () -> {
+                    if (repair.started.compareAndSet(false, true)) {
+                        //the compiler resolves classes through the context class loader
+                        ClassLoader previous = Thread.currentThread().getContextClassLoader();
+                        Thread.currentThread().setContextClassLoader(contextClassLoader);
+                        try (TraceSpan span = trace.start("repair").detail(repair.strategy)) {
+                            repair.attempt.complete(metrics.repair(repair.strategy, () -> canonicalize(repair.script, repair.attempt::isDone)));
+                        } catch (Throwable e) {
+                            repair.attempt.completeExceptionally(e);
+                        } finally {
+                            Thread.currentThread().setContextClassLoader(previous);
+                        }
+                    }
+                };
+                repairExecutor.execute(repair.task);
+            }
+        }
         try {
-            compile(newScript);
-            return true;
-        } catch (MultipleCompilationErrorsException me2) {
-            //me2.printStackTrace();
-            //ignore, source adjustment failed, unable to perform autocomplete.
+            for (int i = 0; i < repairs.size(); i++) {
+                Repair repair = repairs.get(i);
+                try {
+                    if (repair.started.compareAndSet(false, true)) {
+                        try (TraceSpan span = trace.start("repair").detail(repair.strategy)) {
+                            if (!reuse(repair.script)) {
+                                accept(repair.script, metrics.repair(repair.strategy, () -> canonicalize(repair.script)));
+                            }
+                        }
+                    } else {
+                        accept(repair.script, repair.attempt.join());
+                    }
+                } catch (MultipleCompilationErrorsException e) {
+                    //ignore, source adjustment failed, try the next one.
+                    continue;
+                } catch (CompletionException e) {
+                    if (e.getCause() instanceof MultipleCompilationErrorsException) {
+                        continue;
+                    }
+                    throw e;
+                }
+                //the hints of the repairs tried before are kept, as their adjustments are part of this script.
+                for (Repair applied : repairs.subList(0, i + 1)) {
+                    if (applied.propertyHint != null) {
+                        autoCompleteRequest.setPropertyHint(applied.propertyHint);
+                    }
+                    if (applied.constructorHint != null) {
+                        autoCompleteRequest.setConstructorHint(applied.constructorHint);
+                    }
+                }
+                return;
+            }
+            //unable to perform autocomplete.
+        } finally {
+            //candidates after the winner that have not started are skipped, the running ones see the cancelled attempt.
+            for (Repair repair : repairs) {
+                repair.started.set(true);
+                repair.attempt.cancel(false);
+                if (repair.task != null && repairExecutor instanceof ThreadPoolExecutor) {
+                    ((ThreadPoolExecutor) repairExecutor).remove(repair.task);
+                }
+            }
         }
-        return false;
     }
 
-    private boolean constructorHint(List<String> lines) {
+    private Repair constructorHint(List<String> lines) {
         String srcLine = lines.get(autoCompleteRequest.getLine());
         StringBuilder modifedSrc = new StringBuilder(srcLine);
         //first, replace the constructor value with Object. It is too difficult to determine if the constructor text is for a valid class or a partial match without full AST processing.
@@ -149,8 +261,9 @@ class AutoCompleteParser {
             constructorHint.insert(0, c);
         }
         if (startIndex != -1) {
-            modifedSrc.replace(startIndex, autoCompleteRequest.getCh(), " Object()");
-            autoCompleteRequest.setConstructorHint(constructorHint.toString());
+            //the arguments are padded so the constructor call still spans the cursor when the hint is longer than Object().
+            int padding = Math.max(0, autoCompleteRequest.getCh() - startIndex - " Object()".length());
+            modifedSrc.replace(startIndex, autoCompleteRequest.getCh(), " Object(" + " ".repeat(padding) + ")");
             //second, make a crude attempt to balance parenthesis.
             int depth = 0;
             for (int i = 0; i < modifedSrc.length(); i++) {
@@ -166,25 +279,25 @@ class AutoCompleteParser {
                 modifedSrc.append(")");
             }
             lines.set(autoCompleteRequest.getLine(), modifedSrc.toString());
-            return compileUpdate(lines);
+            return new Repair("constructor", lines, null, constructorHint.toString());
         }
-        return false;
+        return null;
 
     }
 
-    private boolean methodParamHint(List<String> lines) {
+    private Repair methodParamHint(List<String> lines) {
         String srcLine = lines.get(autoCompleteRequest.getLine());
         Matcher m = METHOD_PARAM.matcher(srcLine);
         if (m.find()) {
             StringBuilder modifedSrc = new StringBuilder(lines.get(autoCompleteRequest.getLine()));
             modifedSrc.append(")");
             lines.set(autoCompleteRequest.getLine(), modifedSrc.toString());
-            return compileUpdate(lines);
+            return new Repair("methodParam", lines, null, null);
         }
-        return false;
+        return null;
     }
 
-    private boolean importHint(List<String> lines) {
+    private Repair importHint(List<String> lines) {
         String srcLine = lines.get(autoCompleteRequest.getLine());
         Matcher m = IMPORT.matcher(srcLine);
         if (m.find()) {
@@ -195,64 +308,42 @@ class AutoCompleteParser {
                 modifedSrc.replace(start, end, ".*");
             }
             lines.set(autoCompleteRequest.getLine(), modifedSrc.toString());
-            return compileUpdate(lines);
+            return new Repair("import", lines, null, null);
         }
-        return false;
+        return null;
     }
 
-    private boolean propertyHint(List<String> lines) {
+    private Repair propertyHint(List<String> lines) {
         String srcLine = lines.get(autoCompleteRequest.getLine());
         Matcher m = PROPERTY.matcher(srcLine);
         if (m.find()) {
             StringBuilder modifedSrc = new StringBuilder(lines.get(autoCompleteRequest.getLine()));
-            autoCompleteRequest.setPropertyHint(m.group(1));
             int start = m.start(1);
             int end = m.end(1);
             modifedSrc.replace(start, end, "_");
             lines.set(autoCompleteRequest.getLine(), modifedSrc.toString());
-            return compileUpdate(lines);
+            return new Repair("property", lines, m.group(1), null);
         }
-        return false;
+        return null;
     }
 
-    private static class GCEClassLoader extends ClassLoader {
-
-        private final Map<String, byte[]> classpath = new HashMap<>();
-
-        private void addClasspathEntry(GroovyClass clazz) {
-            classpath.put(clazz.getName(), clazz.getBytes());
-        }
-
-        public List<URL> files() throws MalformedURLException {
-            List<URL> files = new ArrayList<>(classpath.size());
-            for (String classname : classpath.keySet()) {
-                files.add(new URL(null, "gce:///" + classname + ".class", new BytesHandler()));
-            }
-            return files;
+    //the adjusted script and the hint text the adjustment replaced.
+    private static class Repair {
+        private final String strategy;
+        private final String script;
+        private final String propertyHint;
+        private final String constructorHint;
+        private final AtomicBoolean started = new AtomicBoolean();
+        private final CompletableFuture<CompilationUnit> attempt = new CompletableFuture<>();
+        //the executor task compiling the attempt, null when it is compiled on the request thread.
+        private Runnable task;
+
+        private Repair(String strategy, List<String> lines, String propertyHint, String constructorHint) {
+            this.strategy = strategy;
+            this.script = lines.stream().collect(Collectors.joining("\n"));
+            this.propertyHint = propertyHint;
+            this.constructorHint = constructorHint;
         }
-
-        private class BytesHandler extends URLStreamHandler {
-            @Override
-            protected URLConnection openConnection(URL u) throws IOException {
-                return new ByteUrlConnection(u);
-            }
-        }
-
-        private class ByteUrlConnection extends URLConnection {
-            public ByteUrlConnection(URL url) {
-                super(url);
-            }
-
-            @Override
-            public void connect() throws IOException {
-            }
-
-            @Override
-            public InputStream getInputStream() throws IOException {
-                return new ByteArrayInputStream(classpath.get(this.getURL().getPath().substring(1)));
-            }
-        }
-
     }
 
     //Not used
@@ -1,12 +1,21 @@
 package com.github.aaronanderson.gce;
 
+import org.codehaus.groovy.control.ErrorCollector;
+
 public class AutoCompleteRequest {
     private final int line;
     private final int ch;
     private final String sticky;
 
+    private String documentId = null;
+    private Boolean autoImport = null;
     private String constructorHint = null;
     private String propertyHint = null;
+    private ErrorCollector errorCollector = null;
+    private TraceSpan trace = TraceSpan.NONE;
+    private int offset = 0;
+    private Integer limit = null;
+    private int total = 0;
 
     public AutoCompleteRequest(int line, int ch, String sticky) {
         this.line = line;
@@ -26,6 +35,24 @@ public class AutoCompleteRequest {
         return sticky;
     }
 
+    //the editor's document, hint requests of the same document share a parse session. Null if the request is not part of an editing session.
+    public String getDocumentId() {
+        return documentId;
+    }
+
+    public void setDocumentId(String documentId) {
+        this.documentId = documentId;
+    }
+
+    //overrides gce.scan.autoImport for this request when not null.
+    public Boolean getAutoImport() {
+        return autoImport;
+    }
+
+    public void setAutoImport(Boolean autoImport) {
+        this.autoImport = autoImport;
+    }
+
     public String getConstructorHint() {
         return constructorHint;
     }
@@ -42,4 +69,48 @@ public class AutoCompleteRequest {
         this.propertyHint = propertyHint;
     }
 
+    //errors of the script as sent, before any repair attempt. Null if it compiled.
+    public ErrorCollector getErrorCollector() {
+        return errorCollector;
+    }
+
+    public void setErrorCollector(ErrorCollector errorCollector) {
+        this.errorCollector = errorCollector;
+    }
+
+    //the ranked hints returned start at offset, at most limit of them. All of them when limit is null.
+    public int getOffset() {
+        return offset;
+    }
+
+    public void setOffset(int offset) {
+        this.offset = offset;
+    }
+
+    public Integer getLimit() {
+        return limit;
+    }
+
+    public void setLimit(Integer limit) {
+        this.limit = limit;
+    }
+
+    //number of hints found, before the offset and limit apply.
+    public int getTotal() {
+        return total;
+    }
+
+    public void setTotal(int total) {
+        this.total = total;
+    }
+
+    //the step of a "trace": true request the analysis steps are recorded under.
+    TraceSpan getTrace() {
+        return trace;
+    }
+
+    void setTrace(TraceSpan trace) {
+        this.trace = trace;
+    }
+
 }
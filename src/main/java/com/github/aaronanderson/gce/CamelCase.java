@@ -0,0 +1,73 @@
+package com.github.aaronanderson.gce;
+
+//Camel case matching of class and member names. A name is made of humps, e.g. Byte Array Input Stream, get Last Cell Num or CASE INSENSITIVE ORDER,
+//and matches a query like BAIS, gLCN or bais when each query character continues the current hump or starts a later one, ignoring case.
+//The TypeIndex keeps names sorted by the initials of their humps, the key, so the candidates of a query are a binary search range of the query key
+//filtered by matches.
+class CamelCase {
+
+    //queries shorter than this only match by prefix.
+    static final int MIN_QUERY = 2;
+
+    private CamelCase() {
+    }
+
+    //the lower case initials of the humps of a name.
+    static String key(String name) {
+        StringBuilder key = new StringBuilder();
+        for (int i = 0; i < name.length(); i++) {
+            if (isHump(name, i)) {
+                key.append(Character.toLowerCase(name.charAt(i)));
+            }
+        }
+        return key.toString();
+    }
+
+    //the key prefix of the names a query may match. Query characters match case insensitively and may continue a hump instead of starting one,
+    //bytearr matches ByteArrayInputStream and gLcn matches getLastCellNum, so only the first character is certain to be an initial.
+    static String queryKey(String query) {
+        return query.isEmpty() ? query : String.valueOf(Character.toLowerCase(query.charAt(0)));
+    }
+
+    static boolean matches(String name, String query) {
+        return query.length() >= MIN_QUERY && !name.isEmpty() && Character.toLowerCase(name.charAt(0)) == Character.toLowerCase(query.charAt(0)) && matches(name, 1, query, 1);
+    }
+
+    //query[q..] matches name[n..], continuing the current hump or jumping to a later one.
+    private static boolean matches(String name, int n, String query, int q) {
+        if (q == query.length()) {
+            return true;
+        }
+        char c = Character.toLowerCase(query.charAt(q));
+        if (n < name.length() && Character.toLowerCase(name.charAt(n)) == c && matches(name, n + 1, query, q + 1)) {
+            return true;
+        }
+        for (int i = n + 1; i < name.length(); i++) {
+            if (isHump(name, i) && Character.toLowerCase(name.charAt(i)) == c && matches(name, i + 1, query, q + 1)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    //the first character, an upper case character after a lower case one or before one (the C of URLConnection), a digit after a non digit
+    //or the character after an underscore or dollar sign.
+    static boolean isHump(String name, int i) {
+        if (i == 0) {
+            return true;
+        }
+        char c = name.charAt(i);
+        char previous = name.charAt(i - 1);
+        if (c == '_' || c == '$') {
+            return false;
+        } else if (previous == '_' || previous == '$') {
+            return true;
+        } else if (Character.isUpperCase(c)) {
+            return !Character.isUpperCase(previous) || (i + 1 < name.length() && Character.isLowerCase(name.charAt(i + 1)));
+        } else if (Character.isDigit(c)) {
+            return !Character.isDigit(previous);
+        }
+        return false;
+    }
+
+}
@@ -0,0 +1,290 @@
+package com.github.aaronanderson.gce;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.math.BigInteger;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.json.Json;
+import javax.json.JsonException;
+import javax.json.JsonObject;
+import javax.json.JsonObjectBuilder;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+//Scripts saved under gce.scripts.dir. File contents are written once to blobs/<sha-256> and each saved version is appended to index.log as a JSON line.
+//The log is replayed into an in-memory index on startup, so listing and lookups never touch the disk. An empty repository is seeded with the sample scripts.
+@ApplicationScoped
+public class FileScriptRepository implements ScriptRepository {
+
+    static Logger logger = Logger.getLogger(FileScriptRepository.class);
+
+    //the sample scripts an empty repository is seeded with: name, attachment name and attachment content type.
+    static String[][] SCRIPTS = new String[][] { new String[] { "test.groovy", null, null }, new String[] { "excel.groovy", "excel.xlsx", "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet" } };
+
+    @ConfigProperty(name = "gce.scripts.dir")
+    Optional<String> scriptsDir;
+
+    //the temp directory used when gce.scripts.dir is not set, deleted on shutdown.
+    private Path tempDir;
+    private Path blobs;
+    private Path log;
+    //script ids in creation order for paging, and all versions of each script.
+    private final List<String> ids = new ArrayList<>();
+    private final Map<String, List<ScriptEntry>> versions = new HashMap<>();
+    private final Map<String, String> names = new HashMap<>();
+    private int nextId = 1;
+    private long revision;
+
+    @PostConstruct
+    void open() throws IOException {
+        Path dir;
+        if (scriptsDir.isPresent()) {
+            dir = Files.createDirectories(Paths.get(scriptsDir.get()));
+        } else {
+            dir = tempDir = Files.createTempDirectory("gce-scripts");
+            logger.infof("gce.scripts.dir is not set, saved scripts are kept in %s until shutdown", dir);
+        }
+        blobs = Files.createDirectories(dir.resolve("blobs"));
+        log = dir.resolve("index.log");
+        if (Files.exists(log)) {
+            int lineNumber = 0;
+            for (String line : Files.readAllLines(log, StandardCharsets.UTF_8)) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    index(fromJson(Json.createReader(new StringReader(line)).readObject()));
+                } catch (JsonException | ClassCastException | NullPointerException e) {
+                    //a save interrupted while appending leaves a partial last line
+                    logger.warnf("Skipping unreadable entry on line %d of %s", lineNumber, log);
+                }
+            }
+        }
+        if (ids.isEmpty()) {
+            for (String[] script : SCRIPTS) {
+                ScriptFile contents = seed(script[0], "text/plain");
+                ScriptFile attachment = script[1] != null ? seed(script[1], script[2]) : null;
+                add(null, contents, attachment);
+            }
+        }
+    }
+
+    @PreDestroy
+    void close() {
+        if (tempDir == null) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(tempDir)) {
+            //children before their directory
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.deleteIfExists(file);
+            }
+        } catch (IOException e) {
+            logger.warnf(e, "Unable to delete %s", tempDir);
+        }
+    }
+
+    @Override
+    public synchronized List<ScriptEntry> list(int offset, int limit) {
+        List<ScriptEntry> page = new ArrayList<>();
+        int end = (int) Math.min((long) offset + limit, ids.size());
+        for (int i = Math.max(offset, 0); i < end; i++) {
+            page.add(latest(ids.get(i)));
+        }
+        return page;
+    }
+
+    @Override
+    public synchronized int size() {
+        return ids.size();
+    }
+
+    @Override
+    public synchronized long revision() {
+        return revision;
+    }
+
+    @Override
+    public synchronized ScriptEntry get(String id) {
+        return latest(id);
+    }
+
+    @Override
+    public synchronized ScriptEntry get(String id, int version) {
+        List<ScriptEntry> scriptVersions = versions.get(id);
+        return scriptVersions != null && version > 0 && version <= scriptVersions.size() ? scriptVersions.get(version - 1) : null;
+    }
+
+    @Override
+    public synchronized ScriptEntry findByName(String name) {
+        String id = names.get(name);
+        return id != null ? latest(id) : null;
+    }
+
+    @Override
+    public synchronized List<ScriptEntry> versions(String id) {
+        List<ScriptEntry> scriptVersions = versions.get(id);
+        return scriptVersions != null ? new ArrayList<>(scriptVersions) : List.of();
+    }
+
+    @Override
+    public ScriptEntry save(String id, FileUpload contents, FileUpload attachment) throws IOException {
+        if (id != null && get(id) == null) {
+            throw new FileNotFoundException(String.format("Script %s not found", id));
+        }
+        //the contents are written before taking the lock so large uploads do not hold up other saves.
+        ScriptFile contentsFile = store(contents);
+        ScriptFile attachmentFile = attachment != null ? store(attachment) : null;
+        return add(id, contentsFile, attachmentFile);
+    }
+
+    @Override
+    public InputStream open(ScriptFile file) throws IOException {
+        return Files.newInputStream(blobs.resolve(file.getHash()));
+    }
+
+    private synchronized ScriptEntry add(String id, ScriptFile contents, ScriptFile attachment) throws IOException {
+        String tag = tag(contents, attachment);
+        ScriptEntry latest = id != null ? latest(id) : null;
+        if (latest != null && latest.getTag().equals(tag)) {
+            return latest;
+        }
+        ScriptEntry entry = new ScriptEntry(id != null ? id : String.valueOf(nextId), latest != null ? latest.getVersion() + 1 : 1, contents, attachment, tag);
+        Files.writeString(log, toJson(entry).toString() + "\n", StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        index(entry);
+        return entry;
+    }
+
+    private void index(ScriptEntry entry) {
+        List<ScriptEntry> scriptVersions = versions.computeIfAbsent(entry.getId(), k -> new ArrayList<>());
+        if (scriptVersions.isEmpty()) {
+            ids.add(entry.getId());
+        }
+        scriptVersions.add(entry);
+        names.put(entry.getContents().getName(), entry.getId());
+        try {
+            nextId = Math.max(nextId, Integer.parseInt(entry.getId()) + 1);
+        } catch (NumberFormatException e) {
+            //ids assigned by another repository
+        }
+        revision++;
+    }
+
+    private ScriptEntry latest(String id) {
+        List<ScriptEntry> scriptVersions = versions.get(id);
+        return scriptVersions != null ? scriptVersions.get(scriptVersions.size() - 1) : null;
+    }
+
+    //copies the upload to a temp file while hashing it, then moves it to its hash unless that content is already stored.
+    private ScriptFile store(FileUpload upload) throws IOException {
+        Path temp = Files.createTempFile(blobs, "upload", ".tmp");
+        try {
+            MessageDigest digest = sha256();
+            long size;
+            try (InputStream in = new DigestInputStream(upload.getContents(), digest)) {
+                size = Files.copy(in, temp, StandardCopyOption.REPLACE_EXISTING);
+            }
+            String hash = hex(digest.digest());
+            Path blob = blobs.resolve(hash);
+            if (!Files.exists(blob)) {
+                Files.move(temp, blob, StandardCopyOption.ATOMIC_MOVE);
+            }
+            return new ScriptFile(upload.getName(), upload.getContentType(), hash, size, System.currentTimeMillis());
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private ScriptFile seed(String name, String contentType) throws IOException {
+        URL url = Thread.currentThread().getContextClassLoader().getResource("scripts/" + name);
+        if (url == null) {
+            throw new FileNotFoundException(String.format("Script file %s not found", name));
+        }
+        URLConnection connection = url.openConnection();
+        //jar entries and files report their modification time, zero if unknown.
+        long lastModified = connection.getLastModified();
+        ScriptFile file;
+        try (InputStream in = connection.getInputStream()) {
+            file = store(new FileUpload(name, contentType, in));
+        }
+        return lastModified > 0 ? new ScriptFile(name, contentType, file.getHash(), file.getSize(), lastModified) : file;
+    }
+
+    private static String tag(ScriptFile contents, ScriptFile attachment) {
+        MessageDigest digest = sha256();
+        for (ScriptFile file : new ScriptFile[] { contents, attachment }) {
+            if (file != null) {
+                digest.update(file.getName().getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+                digest.update(file.getContentType().getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+                digest.update(file.getHash().getBytes(StandardCharsets.UTF_8));
+            }
+            digest.update((byte) 0);
+        }
+        return hex(digest.digest());
+    }
+
+    private static JsonObject toJson(ScriptEntry entry) {
+        JsonObjectBuilder json = Json.createObjectBuilder();
+        json.add("id", entry.getId());
+        json.add("version", entry.getVersion());
+        json.add("contents", toJson(entry.getContents()));
+        if (entry.getAttachment() != null) {
+            json.add("attachment", toJson(entry.getAttachment()));
+        }
+        return json.build();
+    }
+
+    private static JsonObjectBuilder toJson(ScriptFile file) {
+        return Json.createObjectBuilder().add("name", file.getName()).add("contentType", file.getContentType()).add("hash", file.getHash()).add("size", file.getSize()).add("lastModified", file.getLastModified());
+    }
+
+    private static ScriptEntry fromJson(JsonObject json) {
+        ScriptFile contents = fileFromJson(json.getJsonObject("contents"));
+        ScriptFile attachment = json.containsKey("attachment") ? fileFromJson(json.getJsonObject("attachment")) : null;
+        return new ScriptEntry(json.getString("id"), json.getInt("version"), contents, attachment, tag(contents, attachment));
+    }
+
+    private static ScriptFile fileFromJson(JsonObject json) {
+        return new ScriptFile(json.getString("name"), json.getString("contentType"), json.getString("hash"), json.getJsonNumber("size").longValue(), json.getJsonNumber("lastModified").longValue());
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String hex(byte[] digest) {
+        return String.format("%064x", new BigInteger(1, digest));
+    }
+
+}
@@ -1,22 +1,25 @@
 package com.github.aaronanderson.gce;
 
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.PrintWriter;
 import java.io.Reader;
 import java.io.StringWriter;
-import java.time.ZonedDateTime;
-import java.time.format.DateTimeFormatter;
-import java.util.Base64;
-import java.util.Collections;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
 
-import javax.annotation.PostConstruct;
-import javax.annotation.PreDestroy;
 import javax.enterprise.context.RequestScoped;
+import javax.inject.Inject;
 import javax.json.Json;
 import javax.json.JsonArray;
 import javax.json.JsonArrayBuilder;
@@ -25,33 +28,39 @@ import javax.json.JsonObject;
 import javax.json.JsonObjectBuilder;
 import javax.json.JsonValue;
 import javax.ws.rs.Consumes;
+import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
+import javax.ws.rs.QueryParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.core.CacheControl;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.ResponseBuilder;
+import javax.ws.rs.sse.Sse;
+import javax.ws.rs.sse.SseEventSink;
 
 import org.apache.commons.io.IOUtils;
-import org.codehaus.groovy.control.CompilationUnit;
-import org.codehaus.groovy.control.CompilerConfiguration;
-import org.codehaus.groovy.control.MultipleCompilationErrorsException;
-import org.codehaus.groovy.control.Phases;
-import org.codehaus.groovy.control.customizers.SecureASTCustomizer;
-import org.codehaus.groovy.control.messages.Message;
-import org.codehaus.groovy.control.messages.SyntaxErrorMessage;
-import org.codehaus.groovy.control.messages.WarningMessage;
+import org.codehaus.groovy.runtime.InvokerHelper;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.resteasy.plugins.providers.multipart.InputPart;
 import org.jboss.resteasy.plugins.providers.multipart.MultipartFormDataInput;
 import org.jboss.resteasy.plugins.providers.multipart.MultipartFormDataOutput;
 import org.jboss.logging.Logger;
 
+import com.github.aaronanderson.gce.AttachmentStore.Attachment;
+import com.github.aaronanderson.gce.AttachmentStore.AttachmentTooLargeException;
+import com.github.aaronanderson.gce.ScriptCatalog.Page;
+import com.github.aaronanderson.gce.ScriptRepository.FileUpload;
+import com.github.aaronanderson.gce.ScriptRepository.ScriptEntry;
+
 import groovy.lang.Binding;
-import groovy.lang.GroovyClassLoader;
-import groovy.lang.GroovyCodeSource;
-import groovy.lang.GroovyShell;
 import groovy.lang.Script;
 
 @Path("/gce")
@@ -62,53 +71,83 @@ public class GroovyCloudEditorRS {
 
     static Logger logger = Logger.getLogger(GroovyCloudEditorRS.class);
 
-    static String[][] SCRIPTS = new String[][] { new String[] { "test.groovy", null, null }, new String[] { "excel.groovy", "excel.xlsx", "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet" } };
+    @Inject
+    AutoCompleteAnalyzer autoCompleteAnalyzer;
 
-    @ConfigProperty(name = "gce.run.importsBlacklist")
-    List<String> importsBlacklist;
+    @Inject
+    ScriptClassCache scriptClassCache;
 
-    @ConfigProperty(name = "gce.run.starImportsBlacklist")
-    List<String> starImportsBlacklist;
+    @Inject
+    ScriptValidator scriptValidator;
 
-    @ConfigProperty(name = "gce.scan.autoImport", defaultValue = "false")
-    boolean autoImport;
+    @Inject
+    ScriptExecutor scriptExecutor;
 
-    @ConfigProperty(name = "gce.scan.acceptPackages")
-    Optional<List<String>> acceptPackages;
+    @Inject
+    AttachmentStore attachmentStore;
 
-    @ConfigProperty(name = "gce.scan.rejectPackages")
-    Optional<List<String>> rejectPackages;
+    @Inject
+    ScriptRepository scriptRepository;
 
-    private AutoCompleteAnalyzer autoCompleteAnalyzer;
+    @Inject
+    ScriptCatalog scriptCatalog;
 
-    @PostConstruct
-    public void init() {
-        autoCompleteAnalyzer = new AutoCompleteAnalyzer(autoImport, acceptPackages.orElse(Collections.EMPTY_LIST), rejectPackages.orElse(Collections.EMPTY_LIST));
-    }
+    //seconds clients may use the script catalog before revalidating it with If-None-Match
+    @ConfigProperty(name = "gce.scripts.maxAge", defaultValue = "60")
+    int scriptsMaxAge;
+
+    @Inject
+    ScriptDocuments scriptDocuments;
+
+    //hints returned when the hint request has no limit, the best ranked ones.
+    @ConfigProperty(name = "gce.hint.limit", defaultValue = "200")
+    int hintLimit;
 
-    @PreDestroy
-    public void destroy() {
+    //a page of the latest script versions, or the script last saved with the name. contents=href lists the files without their inline text.
+    @GET
+    @Path("scripts")
+    public Response scripts(@QueryParam("offset") @DefaultValue("0") int offset, @QueryParam("limit") Integer limit, @QueryParam("name") String name, @QueryParam("contents") @DefaultValue("inline") String contents, @Context Request request) {
         try {
-            autoCompleteAnalyzer.close();
-        } catch (Exception e) {
+            boolean inline = !"href".equals(contents);
+            Page page = name != null ? scriptCatalog.findByName(name, inline) : scriptCatalog.page(offset, limit, inline);
+            ResponseBuilder notModified = request.evaluatePreconditions(page.getTag());
+            if (notModified != null) {
+                return notModified.cacheControl(scriptsCacheControl()).build();
+            }
+            return Response.status(200).entity(page.getJson()).tag(page.getTag()).lastModified(page.getLastModified()).cacheControl(scriptsCacheControl()).build();
 
+        } catch (Exception e) {
+            logger.error("", e);
+            JsonObject status = Json.createObjectBuilder().add("status", "error").add("message", e.getMessage() != null ? e.getMessage() : "").build();
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity(status).build();
         }
     }
 
-    @GET
+    //saves the "contents" part and optional "attachment" part as a new script, or as a new version of the script with the "scriptId" form field.
+    @POST
     @Path("scripts")
-    public Response scripts() {
+    @Consumes(MediaType.MULTIPART_FORM_DATA)
+    public Response saveScript(MultipartFormDataInput input) {
         try {
-            JsonObjectBuilder status = Json.createObjectBuilder();
-            JsonArrayBuilder scripts = Json.createArrayBuilder();
-            for (int i = 0; i < SCRIPTS.length; i++) {
-                String[] script = SCRIPTS[i];
-                scripts.add(buildScript(i + 1, script[0], script[1], script[2]));
+            String scriptId = input.getFormDataMap().containsKey("scriptId") ? input.getFormDataPart("scriptId", String.class, null) : null;
+            try (InputStream contents = input.getFormDataPart("contents", InputStream.class, null)) {
+                InputPart contentsPart = input.getFormDataMap().get("contents").get(0);
+                FileUpload contentsUpload = new FileUpload(getFileName(contentsPart.getHeaders()), MediaType.TEXT_PLAIN, contents);
+                ScriptEntry script;
+                if (input.getFormDataMap().containsKey("attachment")) {
+                    InputPart attachmentPart = input.getFormDataMap().get("attachment").get(0);
+                    try (InputStream attachment = attachmentPart.getBody(InputStream.class, null)) {
+                        script = scriptRepository.save(scriptId, contentsUpload, new FileUpload(getFileName(attachmentPart.getHeaders()), attachmentPart.getMediaType().toString(), attachment));
+                    }
+                } else {
+                    script = scriptRepository.save(scriptId, contentsUpload, null);
+                }
+                JsonObject status = Json.createObjectBuilder().add("scriptId", script.getId()).add("version", script.getVersion()).add("status", "ok").build();
+                return Response.status(200).entity(status).build();
             }
-            status.add("scripts", scripts);
-            status.add("status", "ok");
-            return Response.status(200).entity(status.build()).build();
-
+        } catch (FileNotFoundException e) {
+            JsonObject status = Json.createObjectBuilder().add("status", "error").add("message", e.getMessage()).build();
+            return Response.status(Response.Status.NOT_FOUND).entity(status).build();
         } catch (Exception e) {
             logger.error("", e);
             JsonObject status = Json.createObjectBuilder().add("status", "error").add("message", e.getMessage() != null ? e.getMessage() : "").build();
@@ -116,31 +155,38 @@ public class GroovyCloudEditorRS {
         }
     }
 
-    //Not used but could be more efficient for large attachment file size.
+    //the files of a script listed by /gce/scripts, linked from its "href".
     @GET
     @Path("script-file/{id}")
     @Produces(MediaType.MULTIPART_FORM_DATA)
-    public Response scriptFiles(@PathParam("id") String scriptId) {
+    public Response scriptFiles(@PathParam("id") String scriptId, @QueryParam("version") Integer version, @Context Request request) {
         try {
+            ScriptEntry script = version != null ? scriptRepository.get(scriptId, version) : scriptRepository.get(scriptId);
+            if (script == null) {
+                JsonObject status = Json.createObjectBuilder().add("status", "error").add("message", String.format("Script %s not found", scriptId)).build();
+                return Response.status(Response.Status.NOT_FOUND).type(MediaType.APPLICATION_JSON_TYPE).entity(status).build();
+            }
+            EntityTag tag = new EntityTag(script.getTag());
+            ResponseBuilder notModified = request.evaluatePreconditions(tag);
+            if (notModified != null) {
+                return notModified.cacheControl(scriptsCacheControl()).build();
+            }
             MultipartFormDataOutput output = new MultipartFormDataOutput();
-
-            String[] script = SCRIPTS[Integer.parseInt(scriptId) - 1];
-            byte[] file = IOUtils.toByteArray(Thread.currentThread().getContextClassLoader().getResourceAsStream("scripts/" + script[0]));
-            output.addFormData("contents", file, MediaType.TEXT_PLAIN_TYPE, script[0]);
-            if (script[1] != null) {
-                file = IOUtils.toByteArray(Thread.currentThread().getContextClassLoader().getResourceAsStream("scripts/" + script[1]));
-                output.addFormData("attachment", file, MediaType.valueOf(script[2]), script[1]);
+            //the stored files are streamed, not read into memory.
+            output.addFormData("contents", scriptRepository.open(script.getContents()), MediaType.TEXT_PLAIN_TYPE, script.getContents().getName());
+            if (script.getAttachment() != null) {
+                output.addFormData("attachment", scriptRepository.open(script.getAttachment()), MediaType.valueOf(script.getAttachment().getContentType()), script.getAttachment().getName());
             }
 
             JsonObjectBuilder status = Json.createObjectBuilder();
             status.add("status", "ok");
             output.addFormData("status", status.build(), MediaType.APPLICATION_JSON_TYPE);
-            return Response.status(200).entity(output).build();
+            return Response.status(200).entity(output).tag(tag).lastModified(new Date(script.getLastModified())).cacheControl(scriptsCacheControl()).build();
 
         } catch (Exception e) {
             logger.error("", e);
             JsonObject status = Json.createObjectBuilder().add("status", "error").add("message", e.getMessage() != null ? e.getMessage() : "").build();
-            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity(status).build();
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).type(MediaType.APPLICATION_JSON_TYPE).entity(status).build();
         }
     }
 
@@ -148,64 +194,229 @@ public class GroovyCloudEditorRS {
     @Path("run")
     @Consumes(MediaType.MULTIPART_FORM_DATA)
     public Response run(MultipartFormDataInput input) {
+        Attachment attachment = null;
         try {
-            Reader scriptContents = input.getFormDataPart("contents", Reader.class, null);
-            String scriptName = getFileName(input.getFormDataMap().get("contents").get(0).getHeaders());
-            InputStream attachment = null;
-            String attachmentName = null;
-            if (input.getFormDataMap().containsKey("attachment")) {
-                attachmentName = getFileName(input.getFormDataMap().get("attachment").get(0).getHeaders());
-                attachment = input.getFormDataPart("attachment", InputStream.class, null);
-            }
+            ScriptEntry savedScript = savedScript(input);
+            attachment = attachment(input, savedScript);
+            Binding binding = binding(attachment);
 
             JsonObjectBuilder status = Json.createObjectBuilder();
-            //The GroovyClassLoader could be reused per user session with the codesource cachable option set. This would avoid having to recompile the script if there were no source changes.
-            GroovyClassLoader gcl = new GroovyClassLoader();
-            Map<String, Object> context = new HashMap<>();
-            context.put("basePath", "/gce");
-            Binding binding = new Binding();
-            binding.setVariable("ctx", context);
-            if (attachment != null) {
-                binding.setVariable("attachmentName", attachmentName);
-                binding.setVariable("attachment", attachment);
-            }
-
-            CompilerConfiguration config = new CompilerConfiguration();
-            config.setParameters(true);
-            config.setPreviewFeatures(true);
-            //config.setDebug(true);
-            //config.setVerbose(true);
-            SecureASTCustomizer customizer = new SecureASTCustomizer();
-            //Do not allow file access.
-            //As an alternative to the SecureASTCustomizer for additional security guarantees when executing untrusted external code 
-            //consider setting up a policy file and use a Java SecurityManager.
-            //https://levelup.gitconnected.com/secure-groovy-script-execution-in-a-sandbox-ea39f80ee87
-
-            customizer.setImportsBlacklist(importsBlacklist);
-            customizer.setStarImportsBlacklist(starImportsBlacklist);
-            customizer.setIndirectImportCheckEnabled(true);
-            config.addCompilationCustomizers(customizer);
-            GroovyCodeSource codeSource = new GroovyCodeSource(scriptContents, scriptName, GroovyShell.DEFAULT_CODE_BASE);
-            //codeSource.setCachable(true); //source name should contain has for uniqueness. Cached at GroovyClassLoader level.
+            //compiled script classes are cached, only a new Script instance is created for each run.
+            Class<?> scriptClass = scriptClass(input, savedScript);
             StringWriter out = new StringWriter();
-            GroovyShell gshell = new GroovyShell(gcl, binding, config);
-            Script script = gshell.parse(codeSource);
-            script.setProperty("out", new PrintWriter(out));
-            script.setBinding(binding);
-            Object result = script.run();
-            status.add("out", out.toString());
-            if (result instanceof String) {
-                status.add("result", (String) result);
-            } else if (result instanceof JsonValue) {
-                status.add("result", (JsonValue) result);
+            Object result;
+            //the attachment is deleted once the run has left the pool, a timed out script may still be reading it when the run completes.
+            Attachment runAttachment = attachment;
+            Runnable exit = runAttachment != null ? runAttachment::delete : () -> {
+            };
+            attachment = null;
+            try {
+                result = scriptExecutor.execute(() -> runScript(scriptClass, binding, out), exit);
+            } catch (RejectedExecutionException e) {
+                exit.run();
+                return Response.status(Response.Status.TOO_MANY_REQUESTS).entity(busy()).build();
+            } catch (ExecutionException e) {
+                throw e.getCause();
             }
+            status.add("out", out.toString());
+            addResult(status, result);
             status.add("status", "ok");
             return Response.status(200).entity(status.build()).build();
+        } catch (AttachmentTooLargeException e) {
+            return tooLarge(e);
         } catch (Throwable e) {
             logger.error("", e);
             JsonObject status = Json.createObjectBuilder().add("status", "error").add("message", e.getMessage() != null ? e.getMessage() : "").build();
             return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity(status).build();
+        } finally {
+            if (attachment != null) {
+                attachment.delete();
+            }
+        }
+    }
+
+    //Streams the request body straight to a temp file for a following run to reference with an "attachmentId" form field instead of an "attachment" part.
+    @POST
+    @Path("attachments")
+    @Consumes(MediaType.APPLICATION_OCTET_STREAM)
+    public Response uploadAttachment(@QueryParam("name") String name, InputStream contents) {
+        try {
+            String attachmentId = attachmentStore.upload(name != null ? name : "attachment", contents);
+            JsonObject status = Json.createObjectBuilder().add("attachmentId", attachmentId).add("status", "ok").build();
+            return Response.status(200).entity(status).build();
+        } catch (AttachmentTooLargeException e) {
+            return tooLarge(e);
+        } catch (Throwable e) {
+            logger.error("", e);
+            JsonObject status = Json.createObjectBuilder().add("status", "error").add("message", e.getMessage() != null ? e.getMessage() : "").build();
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity(status).build();
+        }
+    }
+
+    //Same as run but the script output is streamed as "out" events while the script runs, followed by a single "status" event with the run JSON minus "out".
+    @POST
+    @Path("run-stream")
+    @Consumes(MediaType.MULTIPART_FORM_DATA)
+    @Produces(MediaType.SERVER_SENT_EVENTS)
+    public void runStream(MultipartFormDataInput input, @Context SseEventSink eventSink, @Context Sse sse) {
+        Attachment attachment = null;
+        try {
+            ScriptEntry savedScript = savedScript(input);
+            //spooled, the request parts are released once this method returns before the script runs.
+            attachment = attachment(input, savedScript);
+            Binding binding = binding(attachment);
+
+            Class<?> scriptClass = scriptClass(input, savedScript);
+            SseWriter out = new SseWriter(eventSink, sse);
+            //the attachment is deleted once the run has left the pool, a timed out script may still be reading it when the run completes.
+            Runnable exit = attachment != null ? attachment::delete : () -> {
+            };
+            CompletableFuture<Object> run = scriptExecutor.submit(() -> runScript(scriptClass, binding, out), exit);
+            attachment = null;
+            run.whenComplete((result, e) -> {
+                //the script failure, unwrapped the same way as ScriptExecutor records it.
+                Throwable failure = e instanceof CompletionException ? e.getCause() : e;
+                out.finish().whenComplete((r, outFailure) -> {
+                    JsonObjectBuilder status = Json.createObjectBuilder();
+                    Throwable runFailure = failure != null ? failure : outFailure instanceof CompletionException ? outFailure.getCause() : outFailure;
+                    if (runFailure == null) {
+                        addResult(status, result);
+                        status.add("status", "ok");
+                    } else {
+                        logger.error("", runFailure);
+                        status.add("status", "error").add("message", runFailure.getMessage() != null ? runFailure.getMessage() : "");
+                    }
+                    sendStatus(eventSink, sse, status.build());
+                });
+            });
+        } catch (Throwable e) {
+            if (attachment != null) {
+                attachment.delete();
+            }
+            if (e instanceof RejectedExecutionException) {
+                sendStatus(eventSink, sse, busy());
+            } else {
+                logger.error("", e);
+                sendStatus(eventSink, sse, Json.createObjectBuilder().add("status", "error").add("message", e.getMessage() != null ? e.getMessage() : "").build());
+            }
+        }
+    }
+
+    private static void sendStatus(SseEventSink eventSink, Sse sse, JsonObject status) {
+        if (!eventSink.isClosed()) {
+            eventSink.send(sse.newEventBuilder().name("status").data(status.toString()).build()).whenComplete((r, e) -> eventSink.close());
+        }
+    }
+
+    //the saved script referenced by the "scriptId" form field, and optionally "version", or null when the run sends the "contents" part.
+    private ScriptEntry savedScript(MultipartFormDataInput input) throws IOException {
+        if (!input.getFormDataMap().containsKey("scriptId")) {
+            return null;
+        }
+        String scriptId = input.getFormDataPart("scriptId", String.class, null);
+        ScriptEntry script = input.getFormDataMap().containsKey("version") ? scriptRepository.get(scriptId, Integer.parseInt(input.getFormDataPart("version", String.class, null))) : scriptRepository.get(scriptId);
+        if (script == null) {
+            throw new FileNotFoundException(String.format("Script %s not found", scriptId));
         }
+        return script;
+    }
+
+    private Class<?> scriptClass(MultipartFormDataInput input, ScriptEntry savedScript) throws IOException {
+        if (savedScript != null) {
+            try (InputStream contents = scriptRepository.open(savedScript.getContents())) {
+                return scriptClassCache.getScriptClass(savedScript.getContents().getName(), new String(contents.readAllBytes(), StandardCharsets.UTF_8));
+            }
+        }
+        Reader scriptContents = input.getFormDataPart("contents", Reader.class, null);
+        String scriptName = getFileName(input.getFormDataMap().get("contents").get(0).getHeaders());
+        return scriptClassCache.getScriptClass(scriptName, IOUtils.toString(scriptContents));
+    }
+
+    //the uploaded attachment referenced by "attachmentId", the "attachment" part or the attachment of the saved script, spooled to disk. Null if the run has no attachment.
+    private Attachment attachment(MultipartFormDataInput input, ScriptEntry savedScript) throws IOException {
+        if (input.getFormDataMap().containsKey("attachmentId")) {
+            return attachmentStore.take(input.getFormDataPart("attachmentId", String.class, null));
+        }
+        if (input.getFormDataMap().containsKey("attachment")) {
+            String attachmentName = getFileName(input.getFormDataMap().get("attachment").get(0).getHeaders());
+            try (InputStream attachment = input.getFormDataPart("attachment", InputStream.class, null)) {
+                return attachmentStore.spool(attachmentName, attachment);
+            }
+        }
+        if (savedScript != null && savedScript.getAttachment() != null) {
+            try (InputStream attachment = scriptRepository.open(savedScript.getAttachment())) {
+                return attachmentStore.spool(savedScript.getAttachment().getName(), attachment);
+            }
+        }
+        return null;
+    }
+
+    //attachment is a lazily opened stream of the spooled file and attachmentBuffer a read-only memory-mapped view of it, mapped when the script first uses it.
+    private static Binding binding(Attachment attachment) {
+        Map<String, Object> context = new HashMap<>();
+        context.put("basePath", "/gce");
+        Binding binding = attachment != null ? new AttachmentBinding(attachment) : new Binding();
+        binding.setVariable("ctx", context);
+        if (attachment != null) {
+            binding.setVariable("attachmentName", attachment.getName());
+            binding.setVariable("attachment", attachment.openStream());
+        }
+        return binding;
+    }
+
+    private static class AttachmentBinding extends Binding {
+        private final Attachment attachment;
+
+        private AttachmentBinding(Attachment attachment) {
+            this.attachment = attachment;
+        }
+
+        @Override
+        public Object getVariable(String name) {
+            if ("attachmentBuffer".equals(name) && !super.hasVariable(name)) {
+                try {
+                    setVariable(name, attachment.map());
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            return super.getVariable(name);
+        }
+
+        @Override
+        public boolean hasVariable(String name) {
+            return "attachmentBuffer".equals(name) || super.hasVariable(name);
+        }
+    }
+
+    private static Object runScript(Class<?> scriptClass, Binding binding, Writer out) {
+        Script script = InvokerHelper.createScript(scriptClass, binding);
+        script.setProperty("out", new PrintWriter(out, true));
+        script.setBinding(binding);
+        return script.run();
+    }
+
+    private static void addResult(JsonObjectBuilder status, Object result) {
+        if (result instanceof String) {
+            status.add("result", (String) result);
+        } else if (result instanceof JsonValue) {
+            status.add("result", (JsonValue) result);
+        }
+    }
+
+    private CacheControl scriptsCacheControl() {
+        CacheControl cacheControl = new CacheControl();
+        cacheControl.setMaxAge(scriptsMaxAge);
+        return cacheControl;
+    }
+
+    private static Response tooLarge(AttachmentTooLargeException e) {
+        JsonObject status = Json.createObjectBuilder().add("status", "error").add("message", e.getMessage()).build();
+        return Response.status(Response.Status.REQUEST_ENTITY_TOO_LARGE).entity(status).build();
+    }
+
+    private static JsonObject busy() {
+        return Json.createObjectBuilder().add("status", "error").add("message", "Too many scripts are running, try again later").build();
     }
 
     @POST
@@ -213,43 +424,15 @@ public class GroovyCloudEditorRS {
     public Response validate(JsonObject request) {
         try {
             String name = request.getString("name");
-            String scriptContents = request.getString("script");
+            String scriptContents = scriptDocuments.sync(request);
+            if (scriptContents == null) {
+                return resync();
+            }
 
-            GroovyClassLoader gcl = new GroovyClassLoader();
-            JsonObjectBuilder result = Json.createObjectBuilder();
-            CompilerConfiguration cfg = new CompilerConfiguration();
-            CompilationUnit compileUnit = new CompilationUnit(gcl);
-            compileUnit.addSource(name, scriptContents);
-            try {
-                compileUnit.compile(Phases.CANONICALIZATION);
-            } catch (MultipleCompilationErrorsException me) {
-                if (me.getErrorCollector().getErrorCount() > 0) {
-                    JsonArrayBuilder errors = Json.createArrayBuilder();
-                    for (Message err : me.getErrorCollector().getErrors()) {
-                        JsonObjectBuilder errJson = Json.createObjectBuilder();
-                        if (err instanceof SyntaxErrorMessage) {
-                            SyntaxErrorMessage serr = (SyntaxErrorMessage) err;
-                            errJson.add("sline", serr.getCause().getStartLine());
-                            errJson.add("eline", serr.getCause().getEndLine());
-                            errJson.add("scolumn", serr.getCause().getStartColumn());
-                            errJson.add("ecolumn", serr.getCause().getEndColumn());
-                            errJson.add("message", serr.getCause().getMessage());
-                        } else {
-                            errJson.add("message", err.toString());
-                        }
-                        errors.add(errJson);
-                    }
-                    result.add("errors", errors);
-                }
-                if (me.getErrorCollector().getWarningCount() > 0) {
-                    JsonArrayBuilder warnings = Json.createArrayBuilder();
-                    for (WarningMessage warn : me.getErrorCollector().getWarnings()) {
-                        JsonObjectBuilder warnJson = Json.createObjectBuilder();
-                        warnJson.add("message", warn.getMessage());
-                        warnings.add(warnJson);
-                    }
-                    result.add("warnings", warnings);
-                }
+            //unchanged scripts are answered from the validation cache.
+            JsonObjectBuilder result = Json.createObjectBuilder(scriptValidator.validate(name, scriptContents));
+            if (request.containsKey("version")) {
+                result.add("version", request.getInt("version"));
             }
             result.add("status", "ok");
             return Response.status(200).entity(result.build()).build();
@@ -264,6 +447,17 @@ public class GroovyCloudEditorRS {
     @POST
     @Path("hint")
     public Response hint(JsonObject request) {
+        return hint(request, false);
+    }
+
+    //Same as hint but the response also has the validate "errors" and "warnings", taken from the compilation the hints are made from.
+    @POST
+    @Path("validate-hint")
+    public Response validateHint(JsonObject request) {
+        return hint(request, true);
+    }
+
+    private Response hint(JsonObject request, boolean validate) {
         try {
             JsonNumber line = request.getJsonNumber("line");
             JsonNumber ch = request.getJsonNumber("ch");
@@ -272,7 +466,10 @@ public class GroovyCloudEditorRS {
                 sticky = request.getString("sticky");
             }
             String name = request.getString("name");
-            String scriptContents = request.getString("script");
+            String scriptContents = scriptDocuments.sync(request);
+            if (scriptContents == null) {
+                return resync();
+            }
 
             if (logger.isDebugEnabled()) {
                 logger.debug(String.format("Hint Request: %d %d %s - %s\n%s\n", line.intValue(), ch.intValue(), sticky, name, scriptContents));
@@ -280,8 +477,33 @@ public class GroovyCloudEditorRS {
 
             JsonObjectBuilder result = Json.createObjectBuilder();
             AutoCompleteRequest hintRequest = new AutoCompleteRequest(line.intValue(), ch.intValue(), sticky);
+            //"trace": true returns the time of each step of this request in the response, without enabling debug logging.
+            TraceSpan trace = request.getBoolean("trace", false) ? TraceSpan.root("hint") : TraceSpan.NONE;
+            hintRequest.setTrace(trace);
+            hintRequest.setDocumentId(request.getString("documentId", null));
+            if (request.containsKey("autoImport") && !request.isNull("autoImport")) {
+                hintRequest.setAutoImport(request.getBoolean("autoImport"));
+            }
+            hintRequest.setOffset(Math.max(0, request.getInt("offset", 0)));
+            hintRequest.setLimit(request.containsKey("limit") && !request.isNull("limit") ? request.getInt("limit") : hintLimit);
             List<Hint> hints = autoCompleteAnalyzer.analyze(hintRequest, name, scriptContents);
-            result.add("hints", hintsJson(hints));
+            if (validate) {
+                //also cached for the following validate requests of the same text.
+                try (TraceSpan span = trace.start("validate")) {
+                    result = Json.createObjectBuilder(scriptValidator.validate(name, scriptContents, hintRequest.getErrorCollector()));
+                }
+            }
+            try (TraceSpan span = trace.start("serialize")) {
+                result.add("hints", hintsJson(hints));
+            }
+            result.add("offset", hintRequest.getOffset()).add("total", hintRequest.getTotal());
+            if (request.containsKey("version")) {
+                result.add("version", request.getInt("version"));
+            }
+            if (trace.isEnabled()) {
+                trace.close();
+                result.add("trace", trace.toJson());
+            }
             result.add("status", "ok");
             return Response.status(200).entity(result.build()).build();
         } catch (Throwable e) {
@@ -291,6 +513,12 @@ public class GroovyCloudEditorRS {
         }
     }
 
+    //the edits in the request do not apply to the server copy of the script, the client must send the full script.
+    private static Response resync() {
+        JsonObject status = Json.createObjectBuilder().add("status", "resync").build();
+        return Response.status(Response.Status.CONFLICT).entity(status).build();
+    }
+
     private static JsonArray hintsJson(List<Hint> hints) {
         JsonArrayBuilder hintsJson = Json.createArrayBuilder();
         for (Hint hint : hints) {
@@ -299,36 +527,15 @@ public class GroovyCloudEditorRS {
             hintJson.add("entered", Json.createArrayBuilder().add(hint.getEntered()[0]).add(hint.getEntered()[1]));
             hintJson.add("displayed", hint.getDisplayed());
             hintJson.add("value", hint.getValue());
+            if (hint.getImportValue() != null) {
+                hintJson.add("importValue", hint.getImportValue());
+                hintJson.add("importLine", hint.getImportLine());
+            }
             hintsJson.add(hintJson);
         }
         return hintsJson.build();
     }
 
-    private static JsonObject buildScript(int id, String scriptName, String attachmentName, String attachmentMimeType) throws IOException {
-        JsonObjectBuilder script = Json.createObjectBuilder();
-        script.add("scriptId", String.valueOf(id));
-
-        JsonObjectBuilder contents = Json.createObjectBuilder();
-        contents.add("name", scriptName);
-        contents.add("content_type", "text/plain");
-        contents.add("lastModified", ZonedDateTime.now().format(DateTimeFormatter.ISO_INSTANT));
-        byte[] file = IOUtils.toByteArray(Thread.currentThread().getContextClassLoader().getResourceAsStream("scripts/" + scriptName));
-        contents.add("text", Base64.getEncoder().encodeToString(file));
-        script.add("contents", contents);
-
-        if (attachmentName != null) {
-            JsonObjectBuilder attachment = Json.createObjectBuilder();
-            attachment.add("name", attachmentName);
-            attachment.add("content_type", attachmentMimeType);
-            attachment.add("lastModified", ZonedDateTime.now().format(DateTimeFormatter.ISO_INSTANT));
-            file = IOUtils.toByteArray(Thread.currentThread().getContextClassLoader().getResourceAsStream("scripts/" + attachmentName));
-            attachment.add("text", Base64.getEncoder().encodeToString(file));
-            script.add("attachment", attachment);
-        }
-
-        return script.build();
-    }
-
     private String getFileName(MultivaluedMap<String, String> header) {
 
         String[] contentDisposition = header.getFirst("Content-Disposition").split(";");
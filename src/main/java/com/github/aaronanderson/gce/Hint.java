@@ -6,9 +6,10 @@ public class Hint {
     final private String displayed;
     final private String value;
     final private String importValue;
-    final private String importLine;
+    final private int importLine;
 
-    public Hint(String type, int[] enteredText, String displayText, String value, String importValue, String importLine) {
+    //importValue is the import statement a class that is not imported yet needs, inserted before the 0 based importLine.
+    public Hint(String type, int[] enteredText, String displayText, String value, String importValue, int importLine) {
         this.type = type;
         this.entered = enteredText;
         this.displayed = displayText;
@@ -23,7 +24,7 @@ public class Hint {
         this.displayed = displayed;
         this.value = value;
         this.importValue = null;
-        this.importLine = null;
+        this.importLine = -1;
     }
         
 
@@ -47,7 +48,7 @@ public class Hint {
         return importValue;
     }
 
-    public String getImportLine() {
+    public int getImportLine() {
         return importLine;
     }
 
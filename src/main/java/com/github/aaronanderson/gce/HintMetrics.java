@@ -0,0 +1,62 @@
+package com.github.aaronanderson.gce;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+//Timers of the /gce/hint stages: compilation of the script and of each repair, the script class index, the AST traversal and the inspection of
+//each hint category along with the number of hints it produced. The percentiles are configured by the AutoCompleteAnalyzerProducer meter filter.
+class HintMetrics {
+
+    static final String PREFIX = "gce.hint.";
+
+    private final MeterRegistry registry;
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+    private final Map<String, DistributionSummary> summaries = new ConcurrentHashMap<>();
+
+    HintMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    //canonicalization of the script or the script class index, tagged with the result.
+    <T> T compile(String phase, Supplier<T> compile) {
+        return record(compile, result -> timer("compile", "phase", phase, "result", result));
+    }
+
+    //compilation of a repaired script.
+    <T> T repair(String strategy, Supplier<T> compile) {
+        return record(compile, result -> timer("repair", "strategy", strategy, "result", result));
+    }
+
+    void visited(long nanos) {
+        timer("visit").record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    void inspected(String category, long nanos, int hints) {
+        timer("inspect", "category", category).record(nanos, TimeUnit.NANOSECONDS);
+        summaries.computeIfAbsent(category, k -> DistributionSummary.builder(PREFIX + "results").tag("category", category).description("Hints produced by a hint request").register(registry)).record(hints);
+    }
+
+    private <T> T record(Supplier<T> compile, Function<String, Timer> timer) {
+        long start = System.nanoTime();
+        String result = "error";
+        try {
+            T compiled = compile.get();
+            result = "ok";
+            return compiled;
+        } finally {
+            timer.apply(result).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private Timer timer(String name, String... tags) {
+        return timers.computeIfAbsent(name + String.join(",", tags), k -> Timer.builder(PREFIX + name).tags(tags).register(registry));
+    }
+
+}
@@ -0,0 +1,129 @@
+package com.github.aaronanderson.gce;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.function.Supplier;
+
+//The hint candidates of a request in the order they were found. Candidates are ranked by how the entered text matches their name, exact, prefix, camel case
+//with the closest length first or otherwise, then script declarations before imported ones and classes that need an import, then how often the name already occurs in the script. Only the requested page is materialized.
+class HintRanking {
+
+    private static final int EXACT = 300;
+    private static final int PREFIX = 200;
+    private static final int CAMEL_CASE = 100;
+
+    //where a candidate is declared
+    static final int SCRIPT = 2;
+    static final int IMPORTED = 1;
+    static final int IMPORTABLE = 0;
+
+    private final String script;
+    private final List<Candidate> candidates = new ArrayList<>();
+    private Map<String, Integer> frequencies;
+
+    HintRanking(String script) {
+        this.script = script;
+    }
+
+    //name is the hint text matched against entered, locality is SCRIPT, IMPORTED or IMPORTABLE.
+    void add(String name, String entered, int locality, Supplier<Hint> hint) {
+        candidates.add(new Candidate(candidates.size(), match(name, entered != null ? entered : ""), locality, name, hint));
+    }
+
+    int size() {
+        return candidates.size();
+    }
+
+    //the ranked hints from offset, at most limit of them when limit is not null. A bounded heap keeps the first offset + limit candidates.
+    List<Hint> page(int offset, Integer limit) {
+        if (offset >= candidates.size() || (limit != null && limit <= 0)) {
+            return Collections.emptyList();
+        }
+        Comparator<Candidate> ranking = ranking();
+        List<Candidate> ranked;
+        if (limit == null || (long) offset + limit >= candidates.size()) {
+            ranked = new ArrayList<>(candidates);
+            ranked.sort(ranking);
+        } else {
+            int size = offset + limit;
+            PriorityQueue<Candidate> top = new PriorityQueue<>(size + 1, ranking.reversed());
+            for (Candidate candidate : candidates) {
+                top.add(candidate);
+                if (top.size() > size) {
+                    top.poll();
+                }
+            }
+            ranked = new ArrayList<>(top);
+            ranked.sort(ranking);
+        }
+        List<Hint> hints = new ArrayList<>(ranked.size() - offset);
+        for (Candidate candidate : ranked.subList(offset, ranked.size())) {
+            hints.add(candidate.hint.get());
+        }
+        return hints;
+    }
+
+    private Comparator<Candidate> ranking() {
+        Comparator<Candidate> ranking = Comparator.comparingInt((Candidate c) -> c.match).reversed();
+        ranking = ranking.thenComparing(Comparator.comparingInt((Candidate c) -> c.locality).reversed());
+        //the script is only tokenized once candidates tie on match and locality.
+        ranking = ranking.thenComparing(Comparator.comparingInt((Candidate c) -> frequency(c.name)).reversed());
+        return ranking.thenComparingInt(c -> c.order);
+    }
+
+    private int frequency(String name) {
+        if (frequencies == null) {
+            frequencies = identifiers(script);
+        }
+        return frequencies.getOrDefault(name, 0);
+    }
+
+    //occurrences of each identifier in the script text.
+    static Map<String, Integer> identifiers(String script) {
+        Map<String, Integer> identifiers = new HashMap<>();
+        int start = -1;
+        for (int i = 0; i <= script.length(); i++) {
+            boolean part = i < script.length() && (start >= 0 ? Character.isJavaIdentifierPart(script.charAt(i)) : Character.isJavaIdentifierStart(script.charAt(i)));
+            if (part && start < 0) {
+                start = i;
+            } else if (!part && start >= 0) {
+                identifiers.merge(script.substring(start, i), 1, Integer::sum);
+                start = -1;
+            }
+        }
+        return identifiers;
+    }
+
+    static int match(String name, String entered) {
+        if (name.equals(entered)) {
+            return EXACT;
+        } else if (name.startsWith(entered)) {
+            return PREFIX;
+        } else if (CamelCase.matches(name, entered)) {
+            return CAMEL_CASE + Math.max(0, 99 - name.length() + entered.length());
+        }
+        return 0;
+    }
+
+    private static class Candidate {
+        private final int order;
+        private final int match;
+        private final int locality;
+        private final String name;
+        private final Supplier<Hint> hint;
+
+        private Candidate(int order, int match, int locality, String name, Supplier<Hint> hint) {
+            this.order = order;
+            this.match = match;
+            this.locality = locality;
+            this.name = name;
+            this.hint = hint;
+        }
+    }
+
+}
@@ -0,0 +1,92 @@
+package com.github.aaronanderson.gce;
+
+import com.github.aaronanderson.gce.TypeIndex.MemberEntry;
+
+//Immutable hint text of a method, constructor or field, computed once per class and shared by all hint requests.
+//Only parameter names derived from the request arguments or variables in scope are filled in per request.
+class MemberDescriptor {
+
+    private final String name;
+    private final boolean constructor;
+    private final String[] parameterTypeDisplays;
+    private final String[] parameterTypeNames;
+    private final String[] parameterNames;
+    private final String resultDisplay;
+    private final String displayed;
+    private final String value;
+
+    MemberDescriptor(MemberEntry member, boolean field) {
+        name = member.getName();
+        constructor = member.isConstructor();
+        int arity = member.getParameterCount();
+        parameterTypeDisplays = new String[arity];
+        parameterTypeNames = new String[arity];
+        parameterNames = new String[arity];
+        for (int i = 0; i < arity; i++) {
+            parameterTypeDisplays[i] = member.getParameterTypeDisplay(i);
+            parameterTypeNames[i] = member.getParameterTypeName(i);
+            parameterNames[i] = member.getParameterName(i) != null ? member.getParameterName(i) : "param" + (i > 0 ? i + 1 : "");
+        }
+        if (field) {
+            resultDisplay = "";
+            displayed = member.getTypeDisplay() + " " + name;
+            value = name;
+        } else {
+            resultDisplay = member.getTypeDisplay() != null && !constructor ? " - " + member.getTypeDisplay() : "";
+            displayed = displayed(parameterNames);
+            value = value(parameterNames);
+        }
+    }
+
+    String getName() {
+        return name;
+    }
+
+    boolean isConstructor() {
+        return constructor;
+    }
+
+    int getArity() {
+        return parameterNames.length;
+    }
+
+    String getParameterTypeName(int index) {
+        return parameterTypeNames[index];
+    }
+
+    //declared parameter names, param, param2... when the class was compiled without -parameters
+    String[] getParameterNames() {
+        return parameterNames.clone();
+    }
+
+    //method parameter list and result, e.g. (int x, int y) - int, or field type and name, e.g. String name
+    String getDisplayed() {
+        return displayed;
+    }
+
+    //method argument list, e.g. (x, y), or field name
+    String getValue() {
+        return value;
+    }
+
+    //length of the field type prefix of the field display text
+    int getNameOffset() {
+        return displayed.length() - name.length();
+    }
+
+    String displayed(String[] names) {
+        StringBuilder displayed = new StringBuilder("(");
+        for (int i = 0; i < names.length; i++) {
+            displayed.append(parameterTypeDisplays[i]).append(" ").append(names[i]);
+            if (i != names.length - 1) {
+                displayed.append(", ");
+            }
+        }
+        return displayed.append(")").append(resultDisplay).toString();
+    }
+
+    String value(String[] names) {
+        return "(" + String.join(", ", names) + ")";
+    }
+
+}
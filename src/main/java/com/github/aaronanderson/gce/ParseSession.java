@@ -0,0 +1,91 @@
+package com.github.aaronanderson.gce;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.codehaus.groovy.ast.ClassNode;
+import org.codehaus.groovy.ast.ConstructorNode;
+import org.codehaus.groovy.ast.FieldNode;
+import org.codehaus.groovy.ast.MethodNode;
+import org.codehaus.groovy.ast.ModuleNode;
+import org.codehaus.groovy.ast.Parameter;
+import org.codehaus.groovy.ast.PropertyNode;
+import org.codehaus.groovy.control.SourceUnit;
+
+//Last successful parse of a document, a cache rather than an incremental parser. Hint requests for the same document reuse the parsed SourceUnits
+//when the compiled text is unchanged, such as a repeated hint request or the next page of hints, and the script class TypeIndex when only method
+//bodies or script statements changed. Every other edit recompiles the whole script to CANONICALIZATION.
+//Callers must synchronize on the session while parsing and analyzing.
+class ParseSession {
+
+    private String script;
+    private List<SourceUnit> sourceUnits = Collections.emptyList();
+    private String signature;
+    private TypeIndex scriptIndex;
+
+    String getScript() {
+        return script;
+    }
+
+    List<SourceUnit> getSourceUnits() {
+        return sourceUnits;
+    }
+
+    String getSignature() {
+        return signature;
+    }
+
+    TypeIndex getScriptIndex() {
+        return scriptIndex;
+    }
+
+    void setScriptIndex(TypeIndex scriptIndex) {
+        this.scriptIndex = scriptIndex;
+    }
+
+    void update(String script, List<SourceUnit> sourceUnits, String signature) {
+        if (signature == null || !signature.equals(this.signature)) {
+            scriptIndex = null;
+        }
+        this.script = script;
+        this.sourceUnits = sourceUnits;
+        this.signature = signature;
+    }
+
+    //declarations visible to the TypeIndex: classes, supertypes, methods, constructors, fields and properties but not their bodies.
+    static String signature(List<SourceUnit> sourceUnits) {
+        StringBuilder signature = new StringBuilder();
+        for (SourceUnit sourceUnit : sourceUnits) {
+            ModuleNode module = sourceUnit.getAST();
+            for (ClassNode classNode : module.getClasses()) {
+                signature.append(classNode.getModifiers()).append(' ').append(classNode.toString(false)).append(" extends ").append(classNode.getUnresolvedSuperClass(false));
+                for (ClassNode interfaceNode : classNode.getInterfaces()) {
+                    signature.append(',').append(interfaceNode.toString(false));
+                }
+                signature.append('\n');
+                for (ConstructorNode constructorNode : classNode.getDeclaredConstructors()) {
+                    appendMethod(signature, constructorNode);
+                }
+                for (MethodNode methodNode : classNode.getMethods()) {
+                    appendMethod(signature, methodNode);
+                }
+                for (FieldNode fieldNode : classNode.getFields()) {
+                    signature.append(' ').append(fieldNode.getModifiers()).append(' ').append(fieldNode.getType().toString(false)).append(' ').append(fieldNode.getName()).append('\n');
+                }
+                for (PropertyNode propertyNode : classNode.getProperties()) {
+                    signature.append(' ').append(propertyNode.getModifiers()).append(' ').append(propertyNode.getType().toString(false)).append(' ').append(propertyNode.getName()).append(" property\n");
+                }
+            }
+        }
+        return signature.toString();
+    }
+
+    private static void appendMethod(StringBuilder signature, MethodNode methodNode) {
+        signature.append(' ').append(methodNode.getModifiers()).append(' ').append(methodNode.getReturnType().toString(false)).append(' ').append(methodNode.getName()).append('(');
+        for (Parameter parameter : methodNode.getParameters()) {
+            signature.append(parameter.getType().toString(false)).append(' ').append(parameter.getName()).append(parameter.hasInitialExpression() ? "=," : ",");
+        }
+        signature.append(")\n");
+    }
+
+}
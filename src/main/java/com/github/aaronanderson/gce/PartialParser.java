@@ -0,0 +1,275 @@
+package com.github.aaronanderson.gce;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.groovy.parser.antlr4.GroovyLangLexer;
+import org.apache.groovy.parser.antlr4.GroovyLexer;
+
+import groovyjarjarantlr4.v4.runtime.CharStreams;
+import groovyjarjarantlr4.v4.runtime.Token;
+
+//Cursor context read from the Groovy lexer tokens before the cursor, for scripts that neither compile nor compile after the AutoCompleteParser repairs.
+//Any syntax error is tolerated, only the imports, the typed variable declarations in scope and the receiver chain and partial identifier ending at the cursor are recognised.
+class PartialParser {
+
+    private final List<Token> tokens = new ArrayList<>();
+    private final int cursor;
+    private int pos;
+
+    private final Map<String, String> imports = new HashMap<>();
+    private final List<String> starImports = new LinkedList<>();
+    //innermost block last, a closed block's declarations are out of scope.
+    private final LinkedList<Map<String, String>> scopes = new LinkedList<>();
+
+    private PartialParser(String script, int cursor) {
+        this.cursor = cursor;
+        GroovyLangLexer lexer = new GroovyLangLexer(CharStreams.fromString(script.substring(0, cursor)));
+        lexer.removeErrorListeners();
+        for (Token token = lexer.nextToken(); token.getType() != Token.EOF; token = lexer.nextToken()) {
+            if (token.getType() != GroovyLexer.NL && token.getType() != GroovyLexer.SEMI) {
+                tokens.add(token);
+            }
+        }
+        scopes.add(new HashMap<>());
+    }
+
+    //line and ch are zero based, as in AutoCompleteRequest.
+    static CursorContext parse(String script, int line, int ch) {
+        int cursor = 0;
+        for (int i = 0; i < line && cursor >= 0; i++) {
+            cursor = script.indexOf('\n', cursor);
+            cursor = cursor >= 0 ? cursor + 1 : cursor;
+        }
+        cursor = cursor >= 0 ? Math.min(cursor + ch, script.length()) : script.length();
+        return new PartialParser(script, cursor).parse();
+    }
+
+    private CursorContext parse() {
+        for (pos = 0; pos < tokens.size(); pos++) {
+            int type = type(pos);
+            if (type == GroovyLexer.IMPORT) {
+                importDeclaration();
+            } else if (type == GroovyLexer.LBRACE) {
+                scopes.add(new HashMap<>());
+            } else if (type == GroovyLexer.RBRACE && scopes.size() > 1) {
+                scopes.removeLast();
+            } else if (isName(type) && type(pos + 1) == GroovyLexer.ASSIGN && type(pos + 2) == GroovyLexer.NEW && type(pos - 1) != GroovyLexer.DOT) {
+                //def x = new Type(), var x = new Type() or x = new Type()
+                int start = pos;
+                pos += 3;
+                String typeName = typeName();
+                if (typeName != null) {
+                    declare(text(start), typeName);
+                }
+                pos--;
+            } else if ((isName(type) || type == GroovyLexer.BuiltInPrimitiveType) && !isDot(type(pos - 1)) && type(pos - 1) != GroovyLexer.NEW) {
+                //Type x = ..., Type x in parameters and for loops
+                int start = pos;
+                String typeName = typeName();
+                if (typeName != null && isName(type(pos)) && isDeclarationEnd(type(pos + 1))) {
+                    declare(text(pos), typeName);
+                } else {
+                    pos = start;
+                }
+            }
+        }
+        Map<String, String> variables = new HashMap<>();
+        for (Map<String, String> scope : scopes) {
+            variables.putAll(scope);
+        }
+        return receiver(new CursorContext(imports, starImports, variables));
+    }
+
+    //import a.b.C, import a.b.C as D and import a.b.*, static imports are skipped.
+    private void importDeclaration() {
+        if (type(pos + 1) == GroovyLexer.STATIC) {
+            return;
+        }
+        StringBuilder name = new StringBuilder();
+        int i = pos + 1;
+        while (isName(type(i))) {
+            name.append(text(i));
+            if (type(i + 1) != GroovyLexer.DOT) {
+                break;
+            }
+            if (type(i + 2) == GroovyLexer.MUL) {
+                starImports.add(name.toString());
+                pos = i + 2;
+                return;
+            }
+            name.append('.');
+            i += 2;
+        }
+        if (name.length() > 0 && isName(type(i))) {
+            String className = name.toString();
+            String alias = type(i + 1) == GroovyLexer.AS && isName(type(i + 2)) ? text(i + 2) : className.substring(className.lastIndexOf('.') + 1);
+            imports.put(alias, className);
+            pos = i;
+        }
+    }
+
+    //a possibly qualified type with its type arguments and array dimensions skipped, pos is left after it. Null if there is no type at pos.
+    private String typeName() {
+        if (type(pos) == GroovyLexer.BuiltInPrimitiveType) {
+            return text(pos++);
+        }
+        if (!isName(type(pos))) {
+            return null;
+        }
+        StringBuilder name = new StringBuilder(text(pos++));
+        while (type(pos) == GroovyLexer.DOT && isName(type(pos + 1))) {
+            name.append('.').append(text(pos + 1));
+            pos += 2;
+        }
+        if (type(pos) == GroovyLexer.LT) {
+            int depth = 0;
+            do {
+                depth += type(pos) == GroovyLexer.LT ? 1 : type(pos) == GroovyLexer.GT ? -1 : 0;
+                pos++;
+            } while (depth > 0 && pos < tokens.size() && (isName(type(pos)) || type(pos) == GroovyLexer.LT || type(pos) == GroovyLexer.GT || type(pos) == GroovyLexer.COMMA || type(pos) == GroovyLexer.DOT || type(pos) == GroovyLexer.QUESTION || type(pos) == GroovyLexer.EXTENDS || type(pos) == GroovyLexer.SUPER || type(pos) == GroovyLexer.LBRACK || type(pos) == GroovyLexer.RBRACK));
+            if (depth > 0) {
+                return null;
+            }
+        }
+        while (type(pos) == GroovyLexer.LBRACK && type(pos + 1) == GroovyLexer.RBRACK) {
+            name.append("[]");
+            pos += 2;
+        }
+        return name.toString();
+    }
+
+    private void declare(String variable, String typeName) {
+        //def and var declare an untyped variable
+        if (!"def".equals(typeName) && !"var".equals(typeName)) {
+            scopes.getLast().put(variable, typeName);
+        }
+    }
+
+    //the receiver chain before the last dot and the identifier typed after it, e.g. a.b().c for a.b().c.par
+    private CursorContext receiver(CursorContext context) {
+        int i = tokens.size() - 1;
+        if (i >= 0 && isName(type(i)) && tokens.get(i).getStopIndex() + 1 == cursor) {
+            context.partial = text(i--);
+        }
+        if (!isDot(type(i))) {
+            return context;
+        }
+        LinkedList<Segment> receiver = new LinkedList<>();
+        while (isDot(type(i))) {
+            i--;
+            boolean call = false;
+            if (type(i) == GroovyLexer.RPAREN) {
+                int depth = 0;
+                do {
+                    depth += type(i) == GroovyLexer.RPAREN ? 1 : type(i) == GroovyLexer.LPAREN ? -1 : 0;
+                    i--;
+                } while (depth > 0 && i >= 0);
+                if (depth > 0) {
+                    return context;
+                }
+                call = true;
+            }
+            if (!isName(type(i))) {
+                //a literal, closure or index expression of unknown type
+                return context;
+            }
+            boolean constructor = call && type(i - 1) == GroovyLexer.NEW;
+            receiver.addFirst(new Segment(text(i), call, constructor));
+            i--;
+            if (constructor) {
+                break;
+            }
+        }
+        context.receiver = receiver;
+        return context;
+    }
+
+    private boolean isDeclarationEnd(int type) {
+        return type == GroovyLexer.ASSIGN || type == GroovyLexer.COMMA || type == GroovyLexer.RPAREN || type == GroovyLexer.COLON || type == GroovyLexer.IN || type == Token.EOF;
+    }
+
+    private static boolean isName(int type) {
+        return type == GroovyLexer.Identifier || type == GroovyLexer.CapitalizedIdentifier || type == GroovyLexer.DEF || type == GroovyLexer.VAR;
+    }
+
+    private static boolean isDot(int type) {
+        return type == GroovyLexer.DOT || type == GroovyLexer.SAFE_DOT;
+    }
+
+    private int type(int index) {
+        return index >= 0 && index < tokens.size() ? tokens.get(index).getType() : Token.EOF;
+    }
+
+    private String text(int index) {
+        return tokens.get(index).getText();
+    }
+
+    static class CursorContext {
+        private final Map<String, String> imports;
+        private final List<String> starImports;
+        private final Map<String, String> variables;
+        private List<Segment> receiver = Collections.emptyList();
+        private String partial = "";
+
+        private CursorContext(Map<String, String> imports, List<String> starImports, Map<String, String> variables) {
+            this.imports = imports;
+            this.starImports = starImports;
+            this.variables = variables;
+        }
+
+        //imported class names by simple name or alias.
+        Map<String, String> getImports() {
+            return imports;
+        }
+
+        List<String> getStarImports() {
+            return starImports;
+        }
+
+        //declared types, as written, of the variables in scope at the cursor.
+        Map<String, String> getVariables() {
+            return variables;
+        }
+
+        //empty if the cursor does not follow a dot.
+        List<Segment> getReceiver() {
+            return receiver;
+        }
+
+        //the identifier typed up to the cursor, empty if there is none.
+        String getPartial() {
+            return partial;
+        }
+    }
+
+    static class Segment {
+        private final String name;
+        private final boolean call;
+        private final boolean constructor;
+
+        private Segment(String name, boolean call, boolean constructor) {
+            this.name = name;
+            this.call = call;
+            this.constructor = constructor;
+        }
+
+        String getName() {
+            return name;
+        }
+
+        //a method call, or a constructor call for new Type()
+        boolean isCall() {
+            return call;
+        }
+
+        boolean isConstructor() {
+            return constructor;
+        }
+    }
+
+}
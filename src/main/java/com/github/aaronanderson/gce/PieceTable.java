@@ -0,0 +1,101 @@
+package com.github.aaronanderson.gce;
+
+import java.util.ArrayList;
+import java.util.List;
+
+//Editable text made of pieces of the original text and an append-only buffer of inserted text, so edits never copy the document.
+//The full text is only built when requested and is cached until the next edit.
+class PieceTable {
+
+    //long edit sessions fragment the table, it is flattened back into a single piece past this size.
+    private static final int MAX_PIECES = 512;
+
+    private String original;
+    private final StringBuilder added = new StringBuilder();
+    private final List<Piece> pieces = new ArrayList<>();
+    private int length;
+    private String text;
+
+    PieceTable(String original) {
+        this.original = original;
+        this.length = original.length();
+        this.text = original;
+        if (length > 0) {
+            pieces.add(new Piece(false, 0, length));
+        }
+    }
+
+    int length() {
+        return length;
+    }
+
+    //replaces length characters at offset with text, offsets are in UTF-16 chars like String and the CodeMirror document index.
+    void replace(int offset, int length, String text) {
+        if (offset < 0 || length < 0 || offset + length > this.length) {
+            throw new IndexOutOfBoundsException(String.format("Edit %d-%d outside of document length %d", offset, offset + length, this.length));
+        }
+        int index = split(offset);
+        int end = split(offset + length);
+        pieces.subList(index, end).clear();
+        if (!text.isEmpty()) {
+            pieces.add(index, new Piece(true, added.length(), text.length()));
+            added.append(text);
+        }
+        this.length += text.length() - length;
+        this.text = null;
+        if (pieces.size() > MAX_PIECES) {
+            original = toString();
+            added.setLength(0);
+            pieces.clear();
+            pieces.add(new Piece(false, 0, this.length));
+        }
+    }
+
+    //index of the piece starting at offset, splitting the piece containing it if needed.
+    private int split(int offset) {
+        int position = 0;
+        for (int i = 0; i < pieces.size(); i++) {
+            Piece piece = pieces.get(i);
+            if (position == offset) {
+                return i;
+            }
+            if (offset < position + piece.length) {
+                int head = offset - position;
+                pieces.set(i, new Piece(piece.added, piece.start, head));
+                pieces.add(i + 1, new Piece(piece.added, piece.start + head, piece.length - head));
+                return i + 1;
+            }
+            position += piece.length;
+        }
+        return pieces.size();
+    }
+
+    @Override
+    public String toString() {
+        if (text == null) {
+            StringBuilder builder = new StringBuilder(length);
+            for (Piece piece : pieces) {
+                if (piece.added) {
+                    builder.append(added, piece.start, piece.start + piece.length);
+                } else {
+                    builder.append(original, piece.start, piece.start + piece.length);
+                }
+            }
+            text = builder.toString();
+        }
+        return text;
+    }
+
+    private static class Piece {
+        private final boolean added;
+        private final int start;
+        private final int length;
+
+        private Piece(boolean added, int start, int length) {
+            this.added = added;
+            this.start = start;
+            this.length = length;
+        }
+    }
+
+}
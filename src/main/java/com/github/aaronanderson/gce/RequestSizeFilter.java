@@ -0,0 +1,77 @@
+package com.github.aaronanderson.gce;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+
+import javax.json.Json;
+import javax.json.JsonObject;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.ext.Provider;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import io.quarkus.runtime.configuration.MemorySize;
+
+//Limits request bodies to gce.request.maxBodySize. quarkus.http.limits.max-body-size is raised for the whole server so /gce/attachments can
+//stream large attachments to disk, every other route, including the buffered multipart parts of /gce/run, keeps the smaller limit.
+@Provider
+public class RequestSizeFilter implements ContainerRequestFilter {
+
+    //the only route whose body is streamed to disk instead of read into memory.
+    static final String ATTACHMENTS_PATH = "gce/attachments";
+
+    @ConfigProperty(name = "gce.request.maxBodySize", defaultValue = "10M")
+    MemorySize maxBodySize;
+
+    @Override
+    public void filter(ContainerRequestContext requestContext) throws IOException {
+        String path = requestContext.getUriInfo().getPath();
+        if (ATTACHMENTS_PATH.equals(path.startsWith("/") ? path.substring(1) : path)) {
+            return;
+        }
+        long limit = maxBodySize.asLongValue();
+        if (requestContext.getLength() > limit) {
+            requestContext.abortWith(tooLarge(limit));
+            return;
+        }
+        //chunked bodies have no length, count them as they are read.
+        requestContext.setEntityStream(new FilterInputStream(requestContext.getEntityStream()) {
+            private long size;
+
+            @Override
+            public int read() throws IOException {
+                int b = super.read();
+                if (b >= 0) {
+                    count(1);
+                }
+                return b;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                int count = super.read(b, off, len);
+                if (count > 0) {
+                    count(count);
+                }
+                return count;
+            }
+
+            private void count(long count) {
+                size += count;
+                if (size > limit) {
+                    throw new WebApplicationException(tooLarge(limit));
+                }
+            }
+        });
+    }
+
+    private static Response tooLarge(long limit) {
+        JsonObject status = Json.createObjectBuilder().add("status", "error").add("message", String.format("Request body exceeds the %d byte limit, upload large attachments to /gce/attachments", limit)).build();
+        return Response.status(Response.Status.REQUEST_ENTITY_TOO_LARGE).type(MediaType.APPLICATION_JSON_TYPE).entity(status).build();
+    }
+
+}
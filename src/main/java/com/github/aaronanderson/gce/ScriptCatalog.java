@@ -0,0 +1,158 @@
+package com.github.aaronanderson.gce;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.time.format.DateTimeFormatter;
+import java.util.Base64;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.json.Json;
+import javax.json.JsonArrayBuilder;
+import javax.json.JsonObjectBuilder;
+import javax.ws.rs.core.EntityTag;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import com.github.aaronanderson.gce.ScriptRepository.ScriptEntry;
+import com.github.aaronanderson.gce.ScriptRepository.ScriptFile;
+
+//Serialized /gce/scripts pages of the ScriptRepository, kept until the next save. Pages are tagged with a hash of their script tags
+//so clients can revalidate them with If-None-Match, and a cached page answers without reading the repository.
+//Pages inline the Base64 "text" of the script files, or with inline false only list them. Either way each script links to the script-file/{id}
+//endpoint that streams its files, which suits clients of scripts with large attachments.
+@ApplicationScoped
+public class ScriptCatalog {
+
+    private static final int CACHE_SIZE = 32;
+
+    @Inject
+    ScriptRepository scriptRepository;
+
+    //scripts per page when the request has no limit.
+    @ConfigProperty(name = "gce.scripts.pageSize", defaultValue = "100")
+    int pageSize;
+
+    private final Map<String, Page> pages = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Page> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    public Page page(int offset, Integer limit, boolean inline) throws IOException {
+        int pageLimit = limit != null ? limit : pageSize;
+        //pages of an older revision are never requested again and age out.
+        String key = scriptRepository.revision() + ":" + offset + ":" + pageLimit + ":" + inline;
+        synchronized (pages) {
+            Page page = pages.get(key);
+            if (page != null) {
+                return page;
+            }
+        }
+        Page page = build(scriptRepository.list(offset, pageLimit), offset, scriptRepository.size(), inline);
+        synchronized (pages) {
+            pages.put(key, page);
+        }
+        return page;
+    }
+
+    //the page with the latest version of the script last saved with the name, empty if there is none.
+    public Page findByName(String name, boolean inline) throws IOException {
+        String key = scriptRepository.revision() + ":name:" + inline + ":" + name;
+        synchronized (pages) {
+            Page page = pages.get(key);
+            if (page != null) {
+                return page;
+            }
+        }
+        ScriptEntry script = scriptRepository.findByName(name);
+        Page page = build(script != null ? List.of(script) : List.of(), 0, script != null ? 1 : 0, inline);
+        synchronized (pages) {
+            pages.put(key, page);
+        }
+        return page;
+    }
+
+    private Page build(List<ScriptEntry> scripts, int offset, int total, boolean inline) throws IOException {
+        MessageDigest digest = sha256();
+        long lastModified = 0;
+        JsonArrayBuilder scriptsArray = Json.createArrayBuilder();
+        for (ScriptEntry script : scripts) {
+            digest.update(script.getId().getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(script.getTag().getBytes(StandardCharsets.UTF_8));
+            lastModified = Math.max(lastModified, script.getLastModified());
+
+            JsonObjectBuilder scriptJson = Json.createObjectBuilder();
+            scriptJson.add("scriptId", script.getId());
+            scriptJson.add("version", script.getVersion());
+            scriptJson.add("href", String.format("script-file/%s?version=%d", script.getId(), script.getVersion()));
+            scriptJson.add("contents", toJson(script.getContents(), inline));
+            if (script.getAttachment() != null) {
+                scriptJson.add("attachment", toJson(script.getAttachment(), inline));
+            }
+            scriptsArray.add(scriptJson);
+        }
+        digest.update(String.valueOf(total).getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) (inline ? 1 : 0));
+        byte[] json = Json.createObjectBuilder().add("scripts", scriptsArray).add("offset", offset).add("total", total).add("status", "ok").build().toString().getBytes(StandardCharsets.UTF_8);
+        return new Page(json, new EntityTag(String.format("%064x", new BigInteger(1, digest.digest()))), new Date(lastModified));
+    }
+
+    private JsonObjectBuilder toJson(ScriptFile file, boolean inline) throws IOException {
+        JsonObjectBuilder json = Json.createObjectBuilder();
+        json.add("name", file.getName());
+        json.add("content_type", file.getContentType());
+        json.add("lastModified", DateTimeFormatter.ISO_INSTANT.format(Instant.ofEpochMilli(file.getLastModified())));
+        if (inline) {
+            try (InputStream in = scriptRepository.open(file)) {
+                json.add("text", Base64.getEncoder().encodeToString(in.readAllBytes()));
+            }
+        }
+        return json;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public static class Page {
+        private final byte[] json;
+        private final EntityTag tag;
+        private final Date lastModified;
+
+        private Page(byte[] json, EntityTag tag, Date lastModified) {
+            this.json = json;
+            this.tag = tag;
+            this.lastModified = lastModified;
+        }
+
+        //the serialized {"scripts": [...], "offset", "total", "status": "ok"} response.
+        public byte[] getJson() {
+            return json;
+        }
+
+        public EntityTag getTag() {
+            return tag;
+        }
+
+        public Date getLastModified() {
+            return lastModified;
+        }
+    }
+
+}
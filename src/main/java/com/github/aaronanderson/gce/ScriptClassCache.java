@@ -0,0 +1,153 @@
+package com.github.aaronanderson.gce;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+
+import org.codehaus.groovy.control.CompilationFailedException;
+import org.codehaus.groovy.control.CompilerConfiguration;
+import org.codehaus.groovy.control.customizers.ASTTransformationCustomizer;
+import org.codehaus.groovy.control.customizers.SecureASTCustomizer;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import groovy.lang.GroovyClassLoader;
+import groovy.lang.GroovyCodeSource;
+import groovy.lang.GroovyShell;
+import groovy.transform.ThreadInterrupt;
+import groovy.transform.TimedInterrupt;
+
+//Compiled script classes keyed by a hash of the script name, source and compiler settings so re-running an unchanged script skips compilation.
+//Each script is compiled by its own GroovyClassLoader. Evicting the least recently used entry only drops the cache reference, a run still
+//executing the evicted class keeps its loader reachable and the loader is collected once that run finishes.
+@ApplicationScoped
+public class ScriptClassCache {
+
+    static Logger logger = Logger.getLogger(ScriptClassCache.class);
+
+    @ConfigProperty(name = "gce.run.importsBlacklist")
+    List<String> importsBlacklist;
+
+    @ConfigProperty(name = "gce.run.starImportsBlacklist")
+    List<String> starImportsBlacklist;
+
+    @ConfigProperty(name = "gce.run.cacheSize", defaultValue = "100")
+    int cacheSize;
+
+    @ConfigProperty(name = "gce.run.timeout", defaultValue = "30")
+    long timeout;
+
+    private final Map<String, CompiledScript> scripts = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CompiledScript> eldest) {
+            return size() > cacheSize;
+        }
+    };
+
+    public Class<?> getScriptClass(String scriptName, String scriptContents) throws CompilationFailedException {
+        String key = key(scriptName, scriptContents);
+        synchronized (scripts) {
+            CompiledScript compiled = scripts.get(key);
+            if (compiled != null) {
+                logger.debugf("Compiled script %s found in cache", scriptName);
+                return compiled.scriptClass;
+            }
+        }
+        //compile outside the lock, a concurrent compile of the same script simply loses the race below.
+        GroovyClassLoader gcl = new GroovyClassLoader(Thread.currentThread().getContextClassLoader(), compilerConfiguration());
+        CompiledScript compiled;
+        try {
+            GroovyCodeSource codeSource = new GroovyCodeSource(scriptContents, scriptName, GroovyShell.DEFAULT_CODE_BASE);
+            compiled = new CompiledScript(gcl, gcl.parseClass(codeSource, false));
+        } catch (CompilationFailedException e) {
+            release(gcl);
+            throw e;
+        }
+        synchronized (scripts) {
+            CompiledScript existing = scripts.putIfAbsent(key, compiled);
+            if (existing != null) {
+                release(gcl);
+                return existing.scriptClass;
+            }
+        }
+        return compiled.scriptClass;
+    }
+
+    private CompilerConfiguration compilerConfiguration() {
+        CompilerConfiguration config = new CompilerConfiguration();
+        config.setParameters(true);
+        config.setPreviewFeatures(true);
+        //config.setDebug(true);
+        //config.setVerbose(true);
+        SecureASTCustomizer customizer = new SecureASTCustomizer();
+        //Do not allow file access.
+        //As an alternative to the SecureASTCustomizer for additional security guarantees when executing untrusted external code
+        //consider setting up a policy file and use a Java SecurityManager.
+        //https://levelup.gitconnected.com/secure-groovy-script-execution-in-a-sandbox-ea39f80ee87
+
+        customizer.setImportsBlacklist(importsBlacklist);
+        customizer.setStarImportsBlacklist(starImportsBlacklist);
+        customizer.setIndirectImportCheckEnabled(true);
+        config.addCompilationCustomizers(customizer);
+        //let ScriptExecutor stop runaway scripts, loops and method calls check for interruption and the run deadline.
+        //customizers run once per class, applied to all classes each run would add the checks once per class of the script to every class.
+        config.addCompilationCustomizers(new ASTTransformationCustomizer(Map.of("applyToAllClasses", false), ThreadInterrupt.class));
+        config.addCompilationCustomizers(new ASTTransformationCustomizer(Map.of("value", timeout, "applyToAllClasses", false), TimedInterrupt.class));
+        return config;
+    }
+
+    //the compiler settings are part of the key so a configuration change never reuses a class compiled under the old rules.
+    private String key(String scriptName, String scriptContents) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(scriptName.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(scriptContents.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(String.valueOf(importsBlacklist).getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(String.valueOf(starImportsBlacklist).getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(String.valueOf(timeout).getBytes(StandardCharsets.UTF_8));
+            return String.format("%064x", new BigInteger(1, digest.digest()));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    //only for loaders whose class was never handed out to a run.
+    private static void release(GroovyClassLoader gcl) {
+        gcl.clearCache();
+        try {
+            gcl.close();
+        } catch (IOException e) {
+            logger.error("Unable to close GroovyClassLoader", e);
+        }
+    }
+
+    @PreDestroy
+    void close() {
+        synchronized (scripts) {
+            scripts.clear();
+        }
+    }
+
+    private static class CompiledScript {
+        private final GroovyClassLoader loader;
+        private final Class<?> scriptClass;
+
+        private CompiledScript(GroovyClassLoader loader, Class<?> scriptClass) {
+            this.loader = loader;
+            this.scriptClass = scriptClass;
+        }
+    }
+
+}
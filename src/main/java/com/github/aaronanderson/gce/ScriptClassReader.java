@@ -0,0 +1,267 @@
+package com.github.aaronanderson.gce;
+
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.codehaus.groovy.ast.ClassHelper;
+import org.codehaus.groovy.ast.ClassNode;
+import org.codehaus.groovy.ast.ConstructorNode;
+import org.codehaus.groovy.ast.FieldNode;
+import org.codehaus.groovy.ast.GenericsType;
+import org.codehaus.groovy.ast.MethodNode;
+import org.codehaus.groovy.ast.Parameter;
+import org.codehaus.groovy.ast.PropertyNode;
+import org.codehaus.groovy.classgen.Verifier;
+import org.codehaus.groovy.classgen.asm.BytecodeHelper;
+
+import com.github.aaronanderson.gce.TypeIndexWriter.ClassDecl;
+import com.github.aaronanderson.gce.TypeIndexWriter.MemberDecl;
+import com.github.aaronanderson.gce.TypeIndexWriter.ParamDecl;
+
+//Reads the declarations of script classes from their AST, the same public view a ClassGraph scan of the generated class files gives, without writing or loading the classes.
+//The AST is only compiled to CANONICALIZATION, so the members class generation would add (GroovyObject methods, property accessors, default constructors
+//and default argument overloads) are derived from the declarations here.
+class ScriptClassReader {
+
+    private static final int VARARGS = 0x80;
+
+    private ScriptClassReader() {
+    }
+
+    static List<ClassDecl> read(Collection<ClassNode> classNodes) {
+        Map<String, ClassNode> scriptClasses = new HashMap<>();
+        for (ClassNode classNode : classNodes) {
+            if (Modifier.isPublic(classNode.getModifiers())) {
+                scriptClasses.put(classNode.getName(), classNode);
+            }
+        }
+        List<ClassDecl> classDecls = new ArrayList<>();
+        for (ClassNode classNode : scriptClasses.values()) {
+            classDecls.add(classDecl(classNode, scriptClasses));
+        }
+        return classDecls;
+    }
+
+    //like ClassGraph, methods and fields inherited from the other scanned classes are listed after the declared ones unless overridden.
+    private static ClassDecl classDecl(ClassNode classNode, Map<String, ClassNode> scriptClasses) {
+        boolean annotation = classNode.isAnnotationDefinition();
+        int flags = (classNode.isInterface() && !annotation ? TypeIndex.FLAG_INTERFACE : 0) | (annotation ? TypeIndex.FLAG_ANNOTATION : 0) | (!classNode.isInterface() ? TypeIndex.FLAG_STANDARD : 0);
+        //superclasses and then all interfaces, including those of superclasses and superinterfaces. Object is implied, as in ClassGraph.
+        List<String> supertypes = new ArrayList<>();
+        Set<ClassNode> interfaces = new LinkedHashSet<>();
+        for (ClassNode superClass = classNode; superClass != null; superClass = superClass.getSuperClass()) {
+            if (superClass != classNode && !ClassHelper.OBJECT_TYPE.equals(superClass) && !classNode.isInterface()) {
+                supertypes.add(superClass.getName());
+            }
+            for (ClassNode interfaceNode : interfaces(superClass)) {
+                interfaces.addAll(interfaceNode.getAllInterfaces());
+            }
+        }
+        interfaces.remove(classNode);
+        for (ClassNode interfaceNode : interfaces) {
+            supertypes.add(interfaceNode.getName());
+        }
+        Map<String, MethodNode> methodNodes = new LinkedHashMap<>();
+        Map<String, FieldNode> fieldNodes = new LinkedHashMap<>();
+        addMembers(classNode, methodNodes, fieldNodes);
+        for (String supertype : supertypes) {
+            if (scriptClasses.containsKey(supertype)) {
+                addMembers(scriptClasses.get(supertype), methodNodes, fieldNodes);
+            }
+        }
+        List<MemberDecl> methods = new ArrayList<>();
+        for (MethodNode methodNode : methodNodes.values()) {
+            methods.add(methodDecl(methodNode.getName(), methodNode));
+        }
+        List<MemberDecl> constructors = new ArrayList<>();
+        for (MethodNode constructorNode : withDefaultArguments(constructors(classNode))) {
+            if (constructorNode.isPublic()) {
+                constructors.add(methodDecl("<init>", constructorNode));
+            }
+        }
+        List<MemberDecl> fields = new ArrayList<>();
+        for (FieldNode fieldNode : fieldNodes.values()) {
+            //ClassGraph displays the erased field type
+            fields.add(new MemberDecl(fieldNode.getName(), fieldNode.getModifiers(), erasedTypeDisplay(fieldNode.getType()), typeName(fieldNode.getType()), List.of()));
+        }
+        String packageName = classNode.getPackageName() != null ? classNode.getPackageName() : "";
+        return new ClassDecl(classNode.getName(), simpleName(classNode.getName()), packageName, classNode.getModifiers(), flags, supertypes, methods, constructors, fields);
+    }
+
+    //public methods by name and erased parameter types, and public fields by name, that are not already present.
+    private static void addMembers(ClassNode classNode, Map<String, MethodNode> methodNodes, Map<String, FieldNode> fieldNodes) {
+        for (MethodNode methodNode : methods(classNode)) {
+            //ClassGraph does not list the static initializer
+            if (methodNode.isPublic() && !methodNode.getName().startsWith("<")) {
+                StringBuilder key = new StringBuilder(methodNode.getName()).append('(');
+                for (Parameter parameter : methodNode.getParameters()) {
+                    key.append(typeName(parameter.getType())).append(',');
+                }
+                methodNodes.putIfAbsent(key.toString(), methodNode);
+            }
+        }
+        for (FieldNode fieldNode : classNode.getFields()) {
+            if (fieldNode.isPublic()) {
+                fieldNodes.putIfAbsent(fieldNode.getName(), fieldNode);
+            }
+        }
+    }
+
+    //the declared interfaces and GroovyObject, which class generation adds to classes that do not inherit it.
+    private static List<ClassNode> interfaces(ClassNode classNode) {
+        List<ClassNode> interfaces = new ArrayList<>(Arrays.asList(classNode.getInterfaces()));
+        if (addsGroovyObject(classNode)) {
+            interfaces.add(ClassHelper.GROOVY_OBJECT_TYPE);
+        }
+        return interfaces;
+    }
+
+    private static boolean addsGroovyObject(ClassNode classNode) {
+        if (classNode.isInterface() || classNode.isDerivedFromGroovyObject()) {
+            return false;
+        }
+        for (ClassNode superClass = classNode.getSuperClass(); superClass != null; superClass = superClass.getSuperClass()) {
+            //a script superclass gets GroovyObject itself
+            if (superClass.isPrimaryClassNode()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    //the declared methods followed by the methods class generation adds.
+    private static List<MethodNode> methods(ClassNode classNode) {
+        List<MethodNode> methods = new ArrayList<>(classNode.getMethods());
+        if (addsGroovyObject(classNode)) {
+            addIfAbsent(methods, new MethodNode("getMetaClass", Modifier.PUBLIC, ClassHelper.METACLASS_TYPE, Parameter.EMPTY_ARRAY, ClassNode.EMPTY_ARRAY, null));
+            addIfAbsent(methods, new MethodNode("setMetaClass", Modifier.PUBLIC, ClassHelper.VOID_TYPE, new Parameter[] { new Parameter(ClassHelper.METACLASS_TYPE, "mc") }, ClassNode.EMPTY_ARRAY, null));
+        }
+        for (PropertyNode propertyNode : classNode.getProperties()) {
+            int modifiers = propertyNode.getModifiers() & (Modifier.PUBLIC | Modifier.PROTECTED | Modifier.PRIVATE | Modifier.STATIC);
+            String name = Verifier.capitalize(propertyNode.getName());
+            ClassNode type = propertyNode.getType();
+            addIfAbsent(methods, new MethodNode("get" + name, modifiers, type, Parameter.EMPTY_ARRAY, ClassNode.EMPTY_ARRAY, null));
+            if (ClassHelper.boolean_TYPE.equals(type)) {
+                addIfAbsent(methods, new MethodNode("is" + name, modifiers, type, Parameter.EMPTY_ARRAY, ClassNode.EMPTY_ARRAY, null));
+            }
+            if (!Modifier.isFinal(propertyNode.getModifiers())) {
+                addIfAbsent(methods, new MethodNode("set" + name, modifiers, ClassHelper.VOID_TYPE, new Parameter[] { new Parameter(type, "value") }, ClassNode.EMPTY_ARRAY, null));
+            }
+        }
+        return withDefaultArguments(methods);
+    }
+
+    //accessors and GroovyObject methods are only generated when no method with the same name and parameter count is declared.
+    private static void addIfAbsent(List<MethodNode> methods, MethodNode generated) {
+        for (MethodNode methodNode : methods) {
+            if (methodNode.getName().equals(generated.getName()) && methodNode.getParameters().length == generated.getParameters().length) {
+                return;
+            }
+        }
+        methods.add(generated);
+    }
+
+    private static List<MethodNode> constructors(ClassNode classNode) {
+        List<MethodNode> constructors = new ArrayList<>(classNode.getDeclaredConstructors());
+        if (constructors.isEmpty() && !classNode.isInterface()) {
+            constructors.add(new ConstructorNode(Modifier.PUBLIC, null));
+        }
+        return constructors;
+    }
+
+    //each method with default arguments followed by its overloads without them, the rightmost default argument dropped first.
+    private static List<MethodNode> withDefaultArguments(List<MethodNode> methodNodes) {
+        List<MethodNode> methods = new ArrayList<>();
+        for (MethodNode methodNode : methodNodes) {
+            methods.add(methodNode);
+            List<Parameter> parameters = new ArrayList<>(Arrays.asList(methodNode.getParameters()));
+            for (int i = parameters.size() - 1; i >= 0; i--) {
+                if (parameters.get(i).hasInitialExpression()) {
+                    parameters.remove(i);
+                    Parameter[] overload = parameters.toArray(Parameter.EMPTY_ARRAY);
+                    if (methodNode instanceof ConstructorNode) {
+                        methods.add(new ConstructorNode(methodNode.getModifiers(), overload, methodNode.getExceptions(), null));
+                    } else {
+                        methods.add(new MethodNode(methodNode.getName(), methodNode.getModifiers(), methodNode.getReturnType(), overload, methodNode.getExceptions(), null));
+                    }
+                }
+            }
+        }
+        return methods;
+    }
+
+    private static MemberDecl methodDecl(String name, MethodNode methodNode) {
+        Parameter[] parameters = methodNode.getParameters();
+        List<ParamDecl> params = new ArrayList<>();
+        for (Parameter parameter : parameters) {
+            params.add(new ParamDecl(parameter.getName(), typeDisplay(parameter.getType()), typeName(parameter.getType())));
+        }
+        //class generation marks methods with a trailing array parameter as varargs
+        int modifiers = methodNode.getModifiers() | (parameters.length > 0 && parameters[parameters.length - 1].getType().isArray() ? VARARGS : 0);
+        return new MemberDecl(name, modifiers, typeDisplay(methodNode.getReturnType()), typeName(methodNode.getReturnType()), params);
+    }
+
+    //generic type with simple names, e.g. Map<String, List<? extends T>>, the same text as ClassGraph TypeSignature.toStringWithSimpleNames()
+    static String typeDisplay(ClassNode type) {
+        if (type.isArray()) {
+            return typeDisplay(type.getComponentType()) + "[]";
+        }
+        if (type.isGenericsPlaceHolder()) {
+            return type.getUnresolvedName();
+        }
+        StringBuilder display = new StringBuilder(simpleName(type.getName()));
+        GenericsType[] genericsTypes = type.getGenericsTypes();
+        if (genericsTypes != null && genericsTypes.length > 0) {
+            display.append('<');
+            for (int i = 0; i < genericsTypes.length; i++) {
+                if (i > 0) {
+                    display.append(", ");
+                }
+                display.append(typeDisplay(genericsTypes[i]));
+            }
+            display.append('>');
+        }
+        return display.toString();
+    }
+
+    private static String typeDisplay(GenericsType genericsType) {
+        if (genericsType.isWildcard()) {
+            if (genericsType.getLowerBound() != null) {
+                return "? super " + typeDisplay(genericsType.getLowerBound());
+            }
+            ClassNode[] upperBounds = genericsType.getUpperBounds();
+            return upperBounds != null && upperBounds.length > 0 ? "? extends " + typeDisplay(upperBounds[0]) : "?";
+        }
+        return genericsType.isPlaceholder() ? genericsType.getName() : typeDisplay(genericsType.getType());
+    }
+
+    private static String erasedTypeDisplay(ClassNode type) {
+        return type.isArray() ? erasedTypeDisplay(type.getComponentType()) + "[]" : simpleName(typeName(type));
+    }
+
+    //erased type name in Class.getName() form, e.g. int, java.lang.String or [Ljava.lang.String;
+    static String typeName(ClassNode type) {
+        if (type.isArray()) {
+            ClassNode componentType = type.getComponentType();
+            if (componentType.isArray()) {
+                return "[" + typeName(componentType);
+            }
+            return "[" + (ClassHelper.isPrimitiveType(componentType) ? BytecodeHelper.getTypeDescription(componentType) : "L" + typeName(componentType) + ";");
+        }
+        //type variables redirect to their bound
+        return type.redirect().getName();
+    }
+
+    private static String simpleName(String className) {
+        return className.substring(Math.max(className.lastIndexOf('.'), className.lastIndexOf('$')) + 1);
+    }
+
+}
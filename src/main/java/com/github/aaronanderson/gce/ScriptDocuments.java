@@ -0,0 +1,90 @@
+package com.github.aaronanderson.gce;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.json.JsonArray;
+import javax.json.JsonObject;
+import javax.json.JsonValue;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+//Server copies of the edited scripts, so hint and validate requests can send the edits made since the last request instead of the full script.
+//Copies are kept by the "documentId" each editor generates for itself, not by script name, as several editors may have a script with the same name open.
+//A request either carries the full "script", optionally with its client "version", or the "edits" that turn "baseVersion" into "version".
+//Each edit is {"offset", "length", "text"} against the text left by the previous edit.
+@ApplicationScoped
+public class ScriptDocuments {
+
+    @ConfigProperty(name = "gce.document.cacheSize", defaultValue = "100")
+    int cacheSize;
+
+    private final Map<String, Document> documents = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Document> eldest) {
+            return size() > cacheSize;
+        }
+    };
+
+    //returns the current script text, or null if the edits do not apply to the server copy and the client must resend the full script.
+    //Requests without a documentId are not kept and have to send the full script.
+    public String sync(JsonObject request) {
+        String documentId = request.getString("documentId", null);
+        if (request.containsKey("script")) {
+            String script = request.getString("script");
+            if (documentId != null && request.containsKey("version")) {
+                synchronized (documents) {
+                    documents.put(documentId, new Document(request.getInt("version"), script));
+                }
+            }
+            return script;
+        }
+        if (documentId == null || !request.containsKey("version") || !request.containsKey("baseVersion")) {
+            return null;
+        }
+        int version = request.getInt("version");
+        int baseVersion = request.getInt("baseVersion");
+        Document document;
+        synchronized (documents) {
+            document = documents.get(documentId);
+        }
+        if (document == null) {
+            return null;
+        }
+        synchronized (document) {
+            //concurrent hint and validate requests may carry the same edits, the first one applies them.
+            if (document.version == version) {
+                return document.text.toString();
+            }
+            if (document.version != baseVersion) {
+                return null;
+            }
+            JsonArray edits = request.containsKey("edits") ? request.getJsonArray("edits") : JsonValue.EMPTY_JSON_ARRAY;
+            try {
+                for (JsonObject edit : edits.getValuesAs(JsonObject.class)) {
+                    document.text.replace(edit.getInt("offset"), edit.getInt("length"), edit.getString("text"));
+                }
+            } catch (IndexOutOfBoundsException e) {
+                //the server copy is no longer trusted.
+                synchronized (documents) {
+                    documents.remove(documentId, document);
+                }
+                return null;
+            }
+            document.version = version;
+            return document.text.toString();
+        }
+    }
+
+    private static class Document {
+        private int version;
+        private final PieceTable text;
+
+        private Document(int version, String script) {
+            this.version = version;
+            this.text = new PieceTable(script);
+        }
+    }
+
+}
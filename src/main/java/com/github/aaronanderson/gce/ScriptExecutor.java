@@ -0,0 +1,182 @@
+package com.github.aaronanderson.gce;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+//Runs /gce/run scripts on a bounded pool so long running or looping scripts never hold the HTTP worker threads.
+//Runs waiting for a free thread are queued up to gce.run.queueSize, further runs are rejected until the queue drains. With a queueSize of 0 runs are only accepted by an idle thread.
+//A run is cancelled gce.run.timeout seconds after it starts running, the time spent in the queue does not count. The script classes are compiled with ThreadInterrupt and TimedInterrupt so the cancelled script stops at its next loop iteration or method call.
+@ApplicationScoped
+public class ScriptExecutor {
+
+    @ConfigProperty(name = "gce.run.threads", defaultValue = "4")
+    int threads;
+
+    @ConfigProperty(name = "gce.run.queueSize", defaultValue = "16")
+    int queueSize;
+
+    @ConfigProperty(name = "gce.run.timeout", defaultValue = "30")
+    long timeout;
+
+    @Inject
+    MeterRegistry registry;
+
+    private ThreadPoolExecutor executor;
+    private ScheduledThreadPoolExecutor timeouts;
+    private ExecutorService completions;
+    private Timer okTimer;
+    private Timer errorTimer;
+    private Timer timeoutTimer;
+    private Counter rejected;
+
+    @PostConstruct
+    void start() {
+        if (queueSize < 0) {
+            throw new IllegalArgumentException(String.format("gce.run.queueSize must not be negative: %d", queueSize));
+        }
+        AtomicInteger count = new AtomicInteger();
+        BlockingQueue<Runnable> queue = queueSize > 0 ? new ArrayBlockingQueue<>(queueSize) : new SynchronousQueue<>();
+        executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, queue, r -> {
+            Thread thread = new Thread(r, "gce-run-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        timeouts = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread thread = new Thread(r, "gce-run-timeout");
+            thread.setDaemon(true);
+            return thread;
+        });
+        timeouts.setRemoveOnCancelPolicy(true);
+        //the epilogue of a streamed run writes to its client, which must not hold up the deadlines of other runs.
+        AtomicInteger completionCount = new AtomicInteger();
+        completions = Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "gce-run-complete-" + completionCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        Gauge.builder("gce.run.queue", executor, e -> e.getQueue().size()).description("Script runs waiting for a thread").register(registry);
+        Gauge.builder("gce.run.active", executor, ThreadPoolExecutor::getActiveCount).description("Script runs in progress").register(registry);
+        okTimer = Timer.builder("gce.run").tag("outcome", "ok").register(registry);
+        errorTimer = Timer.builder("gce.run").tag("outcome", "error").register(registry);
+        timeoutTimer = Timer.builder("gce.run").tag("outcome", "timeout").register(registry);
+        rejected = Counter.builder("gce.run.rejected").description("Script runs rejected because the queue was full").register(registry);
+    }
+
+    //waits for the run. Throws RejectedExecutionException when the queue is full and ExecutionException with the script failure, a TimeoutException cause when the run was cancelled.
+    //exit is called once the run task has left the pool, after a cancelled script has stopped, unless the run is rejected.
+    public <T> T execute(Callable<T> task, Runnable exit) throws InterruptedException, ExecutionException {
+        CompletableFuture<T> result = run(task, exit);
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            result.cancel(true);
+            throw e;
+        }
+    }
+
+    //completes with the script result or failure without holding the calling thread. Throws RejectedExecutionException when the queue is full.
+    //Dependent actions run on a completion thread, never on the run threads or the thread ending timed out runs. exit is called as for execute.
+    public <T> CompletableFuture<T> submit(Callable<T> task, Runnable exit) {
+        return run(task, exit).whenCompleteAsync((r, e) -> {
+        }, completions);
+    }
+
+    private <T> CompletableFuture<T> run(Callable<T> task, Runnable exit) {
+        //scripts may look up services through the context class loader, e.g. javax.json.Json
+        ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
+        CompletableFuture<T> result = new CompletableFuture<>();
+        //claimed by the pool thread starting the run or by the completion of a run that never started, whichever comes first.
+        AtomicBoolean started = new AtomicBoolean();
+        //set when the run starts, the same time the TimedInterrupt compiled into the script starts counting.
+        AtomicLong start = new AtomicLong();
+        AtomicReference<Future<?>> deadline = new AtomicReference<>();
+        Future<?> future;
+        try {
+            future = executor.submit(() -> {
+                if (!started.compareAndSet(false, true)) {
+                    //cancelled while queued
+                    return;
+                }
+                ClassLoader previous = Thread.currentThread().getContextClassLoader();
+                try {
+                    start.set(System.nanoTime());
+                    deadline.set(timeouts.schedule(() -> {
+                        result.completeExceptionally(timedOut());
+                    }, timeout, TimeUnit.SECONDS));
+                    Thread.currentThread().setContextClassLoader(contextClassLoader);
+                    result.complete(task.call());
+                } catch (TimeoutException e) {
+                    //TimedInterrupt stopped the script just ahead of the deadline, reported the same way.
+                    result.completeExceptionally(timedOut());
+                } catch (Throwable e) {
+                    result.completeExceptionally(e);
+                } finally {
+                    Thread.currentThread().setContextClassLoader(previous);
+                    exit.run();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw e;
+        }
+        result.whenComplete((r, e) -> {
+            if (started.compareAndSet(false, true)) {
+                //never started, there is no run time to record.
+                future.cancel(false);
+                exit.run();
+                return;
+            }
+            //stops the script at its next interrupt check if it is still running, a no-op otherwise.
+            future.cancel(true);
+            Future<?> runDeadline = deadline.get();
+            if (runDeadline != null) {
+                runDeadline.cancel(false);
+            }
+            //TimedInterrupt stops the script itself when it runs past the same deadline.
+            Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+            (cause == null ? okTimer : cause instanceof TimeoutException ? timeoutTimer : errorTimer).record(System.nanoTime() - start.get(), TimeUnit.NANOSECONDS);
+        });
+        return result;
+    }
+
+    private TimeoutException timedOut() {
+        return new TimeoutException(String.format("Script run exceeded the %d second time limit", timeout));
+    }
+
+    @PreDestroy
+    void stop() {
+        completions.shutdown();
+        timeouts.shutdownNow();
+        executor.shutdownNow();
+    }
+
+}
@@ -0,0 +1,139 @@
+package com.github.aaronanderson.gce;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+//Saved scripts and their attachments. Every save adds a version of the script and file contents are stored once per SHA-256 hash.
+//FileScriptRepository is the embedded default, another implementation can replace it as a CDI alternative.
+public interface ScriptRepository {
+
+    //latest version of each script in id order.
+    List<ScriptEntry> list(int offset, int limit);
+
+    int size();
+
+    //changes whenever a script is saved.
+    long revision();
+
+    //latest version, null if there is no script with the id.
+    ScriptEntry get(String id);
+
+    //null if there is no such version.
+    ScriptEntry get(String id, int version);
+
+    //latest version of the script last saved with the contents name, null if there is none.
+    ScriptEntry findByName(String name);
+
+    //oldest first, empty if there is no script with the id.
+    List<ScriptEntry> versions(String id);
+
+    //saves a new version of the script, or a new script when id is null. A save that changes nothing returns the latest version.
+    ScriptEntry save(String id, FileUpload contents, FileUpload attachment) throws IOException;
+
+    InputStream open(ScriptFile file) throws IOException;
+
+    public static class ScriptEntry {
+        private final String id;
+        private final int version;
+        private final ScriptFile contents;
+        private final ScriptFile attachment;
+        private final String tag;
+
+        public ScriptEntry(String id, int version, ScriptFile contents, ScriptFile attachment, String tag) {
+            this.id = id;
+            this.version = version;
+            this.contents = contents;
+            this.attachment = attachment;
+            this.tag = tag;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public int getVersion() {
+            return version;
+        }
+
+        public ScriptFile getContents() {
+            return contents;
+        }
+
+        //null if the script has no attachment.
+        public ScriptFile getAttachment() {
+            return attachment;
+        }
+
+        //hash of the file names, types and contents, the same for versions that only differ in the save time.
+        public String getTag() {
+            return tag;
+        }
+
+        public long getLastModified() {
+            return Math.max(contents.getLastModified(), attachment != null ? attachment.getLastModified() : 0);
+        }
+    }
+
+    public static class ScriptFile {
+        private final String name;
+        private final String contentType;
+        private final String hash;
+        private final long size;
+        private final long lastModified;
+
+        public ScriptFile(String name, String contentType, String hash, long size, long lastModified) {
+            this.name = name;
+            this.contentType = contentType;
+            this.hash = hash;
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        //SHA-256 of the contents.
+        public String getHash() {
+            return hash;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public long getLastModified() {
+            return lastModified;
+        }
+    }
+
+    public static class FileUpload {
+        private final String name;
+        private final String contentType;
+        private final InputStream contents;
+
+        public FileUpload(String name, String contentType, InputStream contents) {
+            this.name = name;
+            this.contentType = contentType;
+            this.contents = contents;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public InputStream getContents() {
+            return contents;
+        }
+    }
+
+}
@@ -0,0 +1,170 @@
+package com.github.aaronanderson.gce;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.json.Json;
+import javax.json.JsonArrayBuilder;
+import javax.json.JsonObject;
+import javax.json.JsonObjectBuilder;
+import javax.json.JsonValue;
+
+import org.codehaus.groovy.control.CompilationUnit;
+import org.codehaus.groovy.control.CompilerConfiguration;
+import org.codehaus.groovy.control.ErrorCollector;
+import org.codehaus.groovy.control.MultipleCompilationErrorsException;
+import org.codehaus.groovy.control.Phases;
+import org.codehaus.groovy.control.messages.Message;
+import org.codehaus.groovy.control.messages.SyntaxErrorMessage;
+import org.codehaus.groovy.control.messages.WarningMessage;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import groovy.lang.GroovyClassLoader;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+//Compiles scripts to CANONICALIZATION for /gce/validate. The errors and warnings are cached by a hash of the script name and source
+//so repeated lint passes over unchanged text skip compilation.
+@ApplicationScoped
+public class ScriptValidator {
+
+    static Logger logger = Logger.getLogger(ScriptValidator.class);
+
+    @ConfigProperty(name = "gce.validate.cacheSize", defaultValue = "500")
+    int cacheSize;
+
+    @Inject
+    MeterRegistry registry;
+
+    private Counter hits;
+    private Counter misses;
+
+    private final Map<String, JsonObject> results = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, JsonObject> eldest) {
+            return size() > cacheSize;
+        }
+    };
+
+    @PostConstruct
+    void start() {
+        hits = Counter.builder("gce.validate.cache").tag("result", "hit").description("Validations answered from the cache").register(registry);
+        misses = Counter.builder("gce.validate.cache").tag("result", "miss").description("Validations that compiled the script").register(registry);
+        Gauge.builder("gce.validate.cache.size", results, r -> {
+            synchronized (r) {
+                return r.size();
+            }
+        }).register(registry);
+    }
+
+    //the "errors" and "warnings" of the script, an empty object if it compiles cleanly.
+    public JsonObject validate(String name, String scriptContents) {
+        String key = key(name, scriptContents);
+        synchronized (results) {
+            JsonObject result = results.get(key);
+            if (result != null) {
+                hits.increment();
+                return result;
+            }
+        }
+        misses.increment();
+        //compile outside the lock, a concurrent validation of the same script computes the same result.
+        JsonObject result = compile(name, scriptContents);
+        synchronized (results) {
+            results.put(key, result);
+        }
+        return result;
+    }
+
+    //the result of a compilation of the script made elsewhere, e.g. by a hint request, cached for later validations. A null errorCollector means it compiled.
+    public JsonObject validate(String name, String scriptContents, ErrorCollector errorCollector) {
+        JsonObject result = errorCollector != null ? diagnostics(errorCollector) : JsonValue.EMPTY_JSON_OBJECT;
+        String key = key(name, scriptContents);
+        synchronized (results) {
+            results.put(key, result);
+        }
+        return result;
+    }
+
+    //the settings of every validation compile, shared with hint compiles whose diagnostics are cached as validations.
+    static CompilerConfiguration compilerConfiguration() {
+        CompilerConfiguration config = new CompilerConfiguration();
+        config.setParameters(true);
+        config.setPreviewFeatures(true);
+        return config;
+    }
+
+    private static JsonObject compile(String name, String scriptContents) {
+        GroovyClassLoader gcl = new GroovyClassLoader();
+        try {
+            CompilationUnit compileUnit = new CompilationUnit(compilerConfiguration(), null, gcl);
+            compileUnit.addSource(name, scriptContents);
+            compileUnit.compile(Phases.CANONICALIZATION);
+            return JsonValue.EMPTY_JSON_OBJECT;
+        } catch (MultipleCompilationErrorsException me) {
+            return diagnostics(me.getErrorCollector());
+        } finally {
+            try {
+                gcl.close();
+            } catch (IOException e) {
+                logger.error("Unable to close GroovyClassLoader", e);
+            }
+        }
+    }
+
+    private static JsonObject diagnostics(ErrorCollector errorCollector) {
+        JsonObjectBuilder result = Json.createObjectBuilder();
+        if (errorCollector.getErrorCount() > 0) {
+            JsonArrayBuilder errors = Json.createArrayBuilder();
+            for (Message err : errorCollector.getErrors()) {
+                JsonObjectBuilder errJson = Json.createObjectBuilder();
+                if (err instanceof SyntaxErrorMessage) {
+                    SyntaxErrorMessage serr = (SyntaxErrorMessage) err;
+                    errJson.add("sline", serr.getCause().getStartLine());
+                    errJson.add("eline", serr.getCause().getEndLine());
+                    errJson.add("scolumn", serr.getCause().getStartColumn());
+                    errJson.add("ecolumn", serr.getCause().getEndColumn());
+                    errJson.add("message", serr.getCause().getMessage());
+                } else {
+                    errJson.add("message", err.toString());
+                }
+                errors.add(errJson);
+            }
+            result.add("errors", errors);
+        }
+        if (errorCollector.getWarningCount() > 0) {
+            JsonArrayBuilder warnings = Json.createArrayBuilder();
+            for (WarningMessage warn : errorCollector.getWarnings()) {
+                JsonObjectBuilder warnJson = Json.createObjectBuilder();
+                warnJson.add("message", warn.getMessage());
+                warnings.add(warnJson);
+            }
+            result.add("warnings", warnings);
+        }
+        return result.build();
+    }
+
+    private static String key(String name, String scriptContents) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(name.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(scriptContents.getBytes(StandardCharsets.UTF_8));
+            return String.format("%064x", new BigInteger(1, digest.digest()));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
@@ -0,0 +1,101 @@
+package com.github.aaronanderson.gce;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import javax.ws.rs.sse.Sse;
+import javax.ws.rs.sse.SseEventSink;
+
+//Script output sent as "out" server-sent events. At most BUFFER_SIZE characters are held, a flush or a full buffer sends them
+//and waits until the event is written so a slow client slows the script down instead of growing the buffer.
+//Events are chained in order and waited for outside the writer lock, so close() never blocks behind a script waiting for its client.
+class SseWriter extends Writer {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final SseEventSink eventSink;
+    private final Sse sse;
+    private final StringBuilder buffer = new StringBuilder();
+    private CompletableFuture<?> sent = CompletableFuture.completedFuture(null);
+    private boolean closed;
+
+    SseWriter(SseEventSink eventSink, Sse sse) {
+        this.eventSink = eventSink;
+        this.sse = sse;
+    }
+
+    @Override
+    public void write(char[] cbuf, int off, int len) throws IOException {
+        while (len > 0) {
+            CompletableFuture<?> pending = null;
+            synchronized (this) {
+                if (closed) {
+                    throw new IOException("Script output closed");
+                }
+                int count = Math.min(len, BUFFER_SIZE - buffer.length());
+                buffer.append(cbuf, off, count);
+                off += count;
+                len -= count;
+                if (buffer.length() == BUFFER_SIZE) {
+                    pending = send();
+                }
+            }
+            if (pending != null) {
+                await(pending);
+            }
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        CompletableFuture<?> pending;
+        synchronized (this) {
+            pending = send();
+        }
+        await(pending);
+    }
+
+    //sends the remaining output without waiting for the client, further writes fail.
+    @Override
+    public void close() throws IOException {
+        finish();
+    }
+
+    //closes the writer, completes when all output was sent or exceptionally if it could not be.
+    synchronized CompletableFuture<?> finish() {
+        if (!closed) {
+            closed = true;
+            try {
+                send();
+            } catch (IOException e) {
+                sent = CompletableFuture.failedFuture(e);
+            }
+        }
+        return sent;
+    }
+
+    //chains the buffered output after the events already sent.
+    private CompletableFuture<?> send() throws IOException {
+        if (buffer.length() == 0) {
+            return sent;
+        }
+        if (eventSink.isClosed()) {
+            throw new IOException("Client disconnected");
+        }
+        String data = buffer.toString();
+        buffer.setLength(0);
+        sent = sent.thenCompose(r -> eventSink.send(sse.newEventBuilder().name("out").data(data).build()).toCompletableFuture());
+        return sent;
+    }
+
+    private static void await(CompletableFuture<?> pending) throws IOException {
+        try {
+            pending.join();
+        } catch (CompletionException e) {
+            throw new IOException("Unable to send script output", e.getCause());
+        }
+    }
+
+}
@@ -0,0 +1,110 @@
+package com.github.aaronanderson.gce;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.json.Json;
+import javax.json.JsonArrayBuilder;
+import javax.json.JsonObject;
+import javax.json.JsonObjectBuilder;
+
+//A timed step of a traced hint request and the steps it contains, returned as the "trace" of the hint response. Requests without "trace": true use NONE,
+//which records nothing, so the steps cost a reference check when tracing is off. Child steps may be started from the repair threads.
+class TraceSpan implements AutoCloseable {
+
+    static final TraceSpan NONE = new TraceSpan(null);
+
+    private final String name;
+    private final long start;
+    private final List<TraceSpan> children = new ArrayList<>();
+    private volatile String detail;
+    private volatile long nanos = -1;
+    private int count;
+
+    private TraceSpan(String name) {
+        this.name = name;
+        this.start = System.nanoTime();
+    }
+
+    static TraceSpan root(String name) {
+        return new TraceSpan(name);
+    }
+
+    boolean isEnabled() {
+        return this != NONE;
+    }
+
+    //a child step, ended by close().
+    TraceSpan start(String name) {
+        if (this == NONE) {
+            return NONE;
+        }
+        TraceSpan child = new TraceSpan(name);
+        synchronized (children) {
+            children.add(child);
+        }
+        return child;
+    }
+
+    //a frequent step, like a class lookup, summed into a single child with the number of times it occurred.
+    void add(String name, long start) {
+        if (this == NONE) {
+            return;
+        }
+        long elapsed = System.nanoTime() - start;
+        synchronized (children) {
+            for (TraceSpan child : children) {
+                if (child.count > 0 && child.name.equals(name)) {
+                    child.nanos += elapsed;
+                    child.count++;
+                    return;
+                }
+            }
+            TraceSpan child = new TraceSpan(name);
+            child.nanos = elapsed;
+            child.count = 1;
+            children.add(child);
+        }
+    }
+
+    //what the step applied to, such as the repair strategy or the hint category.
+    TraceSpan detail(String detail) {
+        if (this != NONE) {
+            this.detail = detail;
+        }
+        return this;
+    }
+
+    @Override
+    public void close() {
+        if (this != NONE && nanos < 0) {
+            nanos = System.nanoTime() - start;
+        }
+    }
+
+    //a step still running when the response is written, such as a repair compile that lost, has no "ms".
+    JsonObject toJson() {
+        JsonObjectBuilder span = Json.createObjectBuilder().add("name", name);
+        if (detail != null) {
+            span.add("detail", detail);
+        }
+        long elapsed = nanos;
+        if (elapsed >= 0) {
+            span.add("ms", elapsed / 1_000_000.0);
+        }
+        if (count > 0) {
+            span.add("count", count);
+        }
+        synchronized (children) {
+            if (!children.isEmpty()) {
+                JsonArrayBuilder childrenJson = Json.createArrayBuilder();
+                for (TraceSpan child : children) {
+                    childrenJson.add(child.toJson());
+                }
+                span.add("children", childrenJson);
+            }
+        }
+        return span.build();
+    }
+
+}
@@ -0,0 +1,613 @@
+package com.github.aaronanderson.gce;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntFunction;
+import java.util.function.IntPredicate;
+import java.util.stream.Stream;
+
+import org.codehaus.groovy.ast.ClassNode;
+import org.jboss.logging.Logger;
+
+import io.github.classgraph.ClassGraph;
+import io.github.classgraph.ScanResult;
+
+//Compact, read-only view of the packages, classes and public members of a ClassGraph scan or of compiled script classes.
+//
+//The index is a single buffer of big-endian ints and UTF-8 string data that can be memory-mapped from disk so restarts with an unchanged classpath skip the scan entirely.
+//Strings are pooled and referenced by id, -1 for null. All records are fixed size:
+//header     - magic, version, fingerprint, string count and positions, package/class counts and positions, sorted permutation positions, refs/members/params positions,
+//             camel case permutation positions
+//packages   - name, parent package, children ref, children count, first class, class count. Sorted by name.
+//classes    - name, simple name, package, modifiers, flags, supertypes ref, supertypes count, first member, method count, constructor count, field count. Grouped by package and sorted by name.
+//classesByName - class ids sorted by class name
+//classesBySimpleName - class ids sorted by simple name
+//packageClassesBySimpleName - class ids sorted by simple name within each package class range
+//membersByName - member ids sorted by name within each method, constructor and field range
+//refs       - package children ids and supertype name string ids
+//members    - name, modifiers, type display text, erased type name, first parameter, parameter count. Methods, constructors and then fields of each class.
+//params     - name, type display text, erased type name
+//classesByHumps, packageClassesByHumps, membersByHumps - the classesBySimpleName, packageClassesBySimpleName and membersByName ranges sorted by the CamelCase key of the name
+class TypeIndex {
+
+    static Logger logger = Logger.getLogger(TypeIndex.class);
+
+    static final int MAGIC = 0x47434549;
+    static final int VERSION = 3;
+    static final int HEADER_SIZE = 20 * 4;
+    static final int PACKAGE_SIZE = 6;
+    static final int CLASS_SIZE = 11;
+    static final int MEMBER_SIZE = 6;
+    static final int PARAM_SIZE = 3;
+
+    static final int FLAG_INTERFACE = 1;
+    static final int FLAG_ANNOTATION = 2;
+    static final int FLAG_STANDARD = 4;
+
+    private static final int SYNTHETIC = 0x1000;
+
+    private final ByteBuffer buffer;
+    private final String[] strings;
+    private final String fingerprint;
+    private final Map<String, MemberDescriptor[]> memberDescriptors = new ConcurrentHashMap<>();
+    private final int stringOffsetsPos;
+    private final int stringDataPos;
+    private final int packageCount;
+    private final int packagesPos;
+    private final int classCount;
+    private final int classesPos;
+    private final int classesByNamePos;
+    private final int classesBySimpleNamePos;
+    private final int packageClassesBySimpleNamePos;
+    private final int membersByNamePos;
+    private final int refsPos;
+    private final int membersPos;
+    private final int paramsPos;
+    private final int classesByHumpsPos;
+    private final int packageClassesByHumpsPos;
+    private final int membersByHumpsPos;
+
+    TypeIndex(ByteBuffer buffer) {
+        this.buffer = buffer;
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IllegalArgumentException("Unsupported type index format");
+        }
+        strings = new String[buffer.getInt(12)];
+        stringOffsetsPos = buffer.getInt(16);
+        stringDataPos = buffer.getInt(20);
+        packageCount = buffer.getInt(24);
+        packagesPos = buffer.getInt(28);
+        classCount = buffer.getInt(32);
+        classesPos = buffer.getInt(36);
+        classesByNamePos = buffer.getInt(40);
+        classesBySimpleNamePos = buffer.getInt(44);
+        packageClassesBySimpleNamePos = buffer.getInt(48);
+        membersByNamePos = buffer.getInt(52);
+        refsPos = buffer.getInt(56);
+        membersPos = buffer.getInt(60);
+        paramsPos = buffer.getInt(64);
+        classesByHumpsPos = buffer.getInt(68);
+        packageClassesByHumpsPos = buffer.getInt(72);
+        membersByHumpsPos = buffer.getInt(76);
+        fingerprint = string(buffer.getInt(8));
+    }
+
+    static TypeIndex of(ScanResult scanResult) {
+        return new TypeIndex(ByteBuffer.wrap(TypeIndexWriter.write(scanResult, null)));
+    }
+
+    //script classes compiled in memory, indexed from their AST.
+    static TypeIndex of(Collection<ClassNode> classNodes) {
+        return new TypeIndex(ByteBuffer.wrap(TypeIndexWriter.write(ScriptClassReader.read(classNodes))));
+    }
+
+    static TypeIndex scan(ClassGraph classGraph) {
+        try (ScanResult scanResult = classGraph.scan()) {
+            return of(scanResult);
+        }
+    }
+
+    //Maps the index file if it was built from the same JVM and classpath, otherwise scans and replaces it.
+    static TypeIndex load(ClassGraph classGraph, Path indexFile, List<String> acceptPackages, List<String> rejectPackages) {
+        String fingerprint;
+        try {
+            fingerprint = fingerprint(classGraph, acceptPackages, rejectPackages);
+            if (Files.isRegularFile(indexFile)) {
+                TypeIndex typeIndex = map(indexFile);
+                if (typeIndex != null && fingerprint.equals(typeIndex.fingerprint)) {
+                    logger.infof("Loaded type index %s", indexFile);
+                    return typeIndex;
+                }
+                logger.infof("Type index %s is out of date, rebuilding", indexFile);
+            }
+        } catch (Exception e) {
+            logger.warnf(e, "Unable to load type index %s, rescanning", indexFile);
+            return scan(classGraph);
+        }
+        byte[] data;
+        try (ScanResult scanResult = classGraph.scan()) {
+            data = TypeIndexWriter.write(scanResult, fingerprint);
+        }
+        try {
+            Path parent = indexFile.toAbsolutePath().getParent();
+            Files.createDirectories(parent);
+            Path tmpFile = Files.createTempFile(parent, indexFile.getFileName().toString(), ".tmp");
+            try {
+                Files.write(tmpFile, data);
+                Files.move(tmpFile, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(tmpFile);
+            }
+            logger.infof("Saved type index %s", indexFile);
+            return map(indexFile);
+        } catch (IOException e) {
+            logger.warnf(e, "Unable to save type index %s", indexFile);
+            return new TypeIndex(ByteBuffer.wrap(data));
+        }
+    }
+
+    //null if the file was written by another version of the index format.
+    private static TypeIndex map(Path indexFile) throws IOException {
+        try (FileChannel channel = FileChannel.open(indexFile, StandardOpenOption.READ)) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                return null;
+            }
+            return new TypeIndex(buffer);
+        }
+    }
+
+    //classpath element paths, sizes and modification times along with the JVM the system modules are loaded from.
+    private static String fingerprint(ClassGraph classGraph, List<String> acceptPackages, List<String> rejectPackages) throws IOException, NoSuchAlgorithmException {
+        StringBuilder entries = new StringBuilder();
+        entries.append(VERSION).append('\n');
+        entries.append(System.getProperty("java.home")).append('\n');
+        entries.append(System.getProperty("java.runtime.version")).append('\n');
+        entries.append(acceptPackages).append('\n');
+        entries.append(rejectPackages).append('\n');
+        for (File file : classGraph.getClasspathFiles()) {
+            Path path = file.toPath();
+            if (Files.isDirectory(path)) {
+                try (Stream<Path> files = Files.walk(path)) {
+                    files.filter(Files::isRegularFile).sorted().forEach(p -> appendEntry(entries, p));
+                }
+            } else {
+                appendEntry(entries, path);
+            }
+        }
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        return String.format("%064x", new BigInteger(1, digest.digest(entries.toString().getBytes(StandardCharsets.UTF_8))));
+    }
+
+    private static void appendEntry(StringBuilder entries, Path path) {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            entries.append(path.toAbsolutePath()).append(' ').append(attributes.size()).append(' ').append(attributes.lastModifiedTime().toMillis()).append('\n');
+        } catch (IOException e) {
+            entries.append(path.toAbsolutePath()).append('\n');
+        }
+    }
+
+    PackageEntry getPackage(String name) {
+        int low = 0;
+        int high = packageCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = string(packageInt(mid, 0)).compareTo(name);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return new PackageEntry(mid);
+            }
+        }
+        return null;
+    }
+
+    ClassEntry getClass(String name) {
+        int low = 0;
+        int high = classCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int id = buffer.getInt(classesByNamePos + mid * 4);
+            int cmp = string(classInt(id, 0)).compareTo(name);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return new ClassEntry(id);
+            }
+        }
+        return null;
+    }
+
+    List<ClassEntry> getClasses() {
+        return classes(0, classCount);
+    }
+
+    //classes in all packages with a simple name starting with prefix, in simple name order.
+    List<ClassEntry> getClasses(String prefix) {
+        return prefixRange(classesBySimpleNamePos, 0, classCount, prefix, c -> string(classInt(c, 1)), ClassEntry::new);
+    }
+
+    //classes in all packages with a simple name starting with or camel case matching query, the prefix matches first.
+    List<ClassEntry> findClasses(String query) {
+        List<ClassEntry> matches = getClasses(query);
+        matches.addAll(camelCaseRange(classesByHumpsPos, 0, classCount, query, c -> string(classInt(c, 1)), ClassEntry::new));
+        return matches;
+    }
+
+    //camel case matches of query that do not start with it, from the [first, first + count) range of a camel case key sorted permutation.
+    private <T> List<T> camelCaseRange(int permutationPos, int first, int count, String query, IntFunction<String> name, IntFunction<T> entry) {
+        if (query.length() < CamelCase.MIN_QUERY) {
+            return new ArrayList<>();
+        }
+        return prefixRange(permutationPos, first, count, CamelCase.queryKey(query), id -> CamelCase.key(name.apply(id)), id -> {
+            String matchName = name.apply(id);
+            return !matchName.startsWith(query) && CamelCase.matches(matchName, query);
+        }, entry);
+    }
+
+    private <T> List<T> prefixRange(int permutationPos, int first, int count, String prefix, IntFunction<String> name, IntFunction<T> entry) {
+        return prefixRange(permutationPos, first, count, prefix, name, id -> true, entry);
+    }
+
+    //binary search of the [first, first + count) range of a name sorted permutation, the result size is the number of matches that are accepted.
+    private <T> List<T> prefixRange(int permutationPos, int first, int count, String prefix, IntFunction<String> name, IntPredicate accept, IntFunction<T> entry) {
+        int low = first;
+        int high = first + count;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (name.apply(buffer.getInt(permutationPos + mid * 4)).compareTo(prefix) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        List<T> matches = new ArrayList<>();
+        for (int i = low; i < first + count; i++) {
+            int id = buffer.getInt(permutationPos + i * 4);
+            if (!name.apply(id).startsWith(prefix)) {
+                break;
+            }
+            if (accept.test(id)) {
+                matches.add(entry.apply(id));
+            }
+        }
+        return matches;
+    }
+
+    //member matches restored to declaration order.
+    private List<MemberEntry> membersWithPrefix(ClassEntry owner, int first, int count, String prefix) {
+        if (prefix.isEmpty()) {
+            return members(owner, first, count);
+        }
+        List<MemberEntry> matches = prefixRange(membersByNamePos, first, count, prefix, m -> string(memberInt(m, 0)), m -> new MemberEntry(owner, m));
+        matches.sort((a, b) -> Integer.compare(a.id, b.id));
+        return matches;
+    }
+
+    //prefix and camel case member matches in declaration order.
+    private List<MemberEntry> membersMatching(ClassEntry owner, int first, int count, String query) {
+        if (query.length() < CamelCase.MIN_QUERY) {
+            return membersWithPrefix(owner, first, count, query);
+        }
+        List<MemberEntry> matches = prefixRange(membersByNamePos, first, count, query, m -> string(memberInt(m, 0)), m -> new MemberEntry(owner, m));
+        matches.addAll(camelCaseRange(membersByHumpsPos, first, count, query, m -> string(memberInt(m, 0)), m -> new MemberEntry(owner, m)));
+        matches.sort((a, b) -> Integer.compare(a.id, b.id));
+        return matches;
+    }
+
+    private List<ClassEntry> classes(int first, int count) {
+        return new AbstractList<ClassEntry>() {
+            @Override
+            public ClassEntry get(int index) {
+                return new ClassEntry(first + index);
+            }
+
+            @Override
+            public int size() {
+                return count;
+            }
+        };
+    }
+
+    private List<MemberEntry> members(ClassEntry owner, int first, int count) {
+        return new AbstractList<MemberEntry>() {
+            @Override
+            public MemberEntry get(int index) {
+                return new MemberEntry(owner, first + index);
+            }
+
+            @Override
+            public int size() {
+                return count;
+            }
+        };
+    }
+
+    private int packageInt(int id, int field) {
+        return buffer.getInt(packagesPos + (id * PACKAGE_SIZE + field) * 4);
+    }
+
+    private int classInt(int id, int field) {
+        return buffer.getInt(classesPos + (id * CLASS_SIZE + field) * 4);
+    }
+
+    private int memberInt(int id, int field) {
+        return buffer.getInt(membersPos + (id * MEMBER_SIZE + field) * 4);
+    }
+
+    private int paramInt(int id, int field) {
+        return buffer.getInt(paramsPos + (id * PARAM_SIZE + field) * 4);
+    }
+
+    private int ref(int index) {
+        return buffer.getInt(refsPos + index * 4);
+    }
+
+    //decoded strings are cached, racing decodes of the same id produce equal immutable values.
+    private String string(int id) {
+        if (id < 0) {
+            return null;
+        }
+        String value = strings[id];
+        if (value == null) {
+            int start = buffer.getInt(stringOffsetsPos + id * 4);
+            int end = buffer.getInt(stringOffsetsPos + (id + 1) * 4);
+            byte[] bytes = new byte[end - start];
+            buffer.get(stringDataPos + start, bytes);
+            value = new String(bytes, StandardCharsets.UTF_8);
+            strings[id] = value;
+        }
+        return value;
+    }
+
+    class PackageEntry {
+        private final int id;
+
+        private PackageEntry(int id) {
+            this.id = id;
+        }
+
+        String getName() {
+            return string(packageInt(id, 0));
+        }
+
+        List<PackageEntry> getChildren() {
+            int first = packageInt(id, 2);
+            int count = packageInt(id, 3);
+            return new AbstractList<PackageEntry>() {
+                @Override
+                public PackageEntry get(int index) {
+                    return new PackageEntry(ref(first + index));
+                }
+
+                @Override
+                public int size() {
+                    return count;
+                }
+            };
+        }
+
+        List<ClassEntry> getClasses() {
+            return classes(packageInt(id, 4), packageInt(id, 5));
+        }
+
+        //classes of the package with a simple name starting with prefix, in simple name order.
+        List<ClassEntry> getClasses(String prefix) {
+            return prefixRange(packageClassesBySimpleNamePos, packageInt(id, 4), packageInt(id, 5), prefix, c -> string(classInt(c, 1)), ClassEntry::new);
+        }
+
+        //classes of the package with a simple name starting with or camel case matching query, the prefix matches first.
+        List<ClassEntry> findClasses(String query) {
+            List<ClassEntry> matches = getClasses(query);
+            matches.addAll(camelCaseRange(packageClassesByHumpsPos, packageInt(id, 4), packageInt(id, 5), query, c -> string(classInt(c, 1)), ClassEntry::new));
+            return matches;
+        }
+    }
+
+    class ClassEntry {
+        private final int id;
+
+        private ClassEntry(int id) {
+            this.id = id;
+        }
+
+        String getName() {
+            return string(classInt(id, 0));
+        }
+
+        String getSimpleName() {
+            return string(classInt(id, 1));
+        }
+
+        int getModifiers() {
+            return classInt(id, 3);
+        }
+
+        boolean isInterface() {
+            return (classInt(id, 4) & FLAG_INTERFACE) != 0;
+        }
+
+        boolean isStandardClass() {
+            return (classInt(id, 4) & FLAG_STANDARD) != 0;
+        }
+
+        //all superclasses and implemented interfaces, direct and inherited.
+        List<String> getSupertypes() {
+            int first = classInt(id, 5);
+            int count = classInt(id, 6);
+            return new AbstractList<String>() {
+                @Override
+                public String get(int index) {
+                    return string(ref(first + index));
+                }
+
+                @Override
+                public int size() {
+                    return count;
+                }
+            };
+        }
+
+        List<MemberEntry> getMethods() {
+            return members(this, classInt(id, 7), classInt(id, 8));
+        }
+
+        List<MemberEntry> getConstructors() {
+            return members(this, classInt(id, 7) + classInt(id, 8), classInt(id, 9));
+        }
+
+        List<MemberEntry> getFields() {
+            return members(this, classInt(id, 7) + classInt(id, 8) + classInt(id, 9), classInt(id, 10));
+        }
+
+        //methods with a name starting with prefix, in declaration order.
+        List<MemberEntry> getMethods(String prefix) {
+            return membersWithPrefix(this, classInt(id, 7), classInt(id, 8), prefix);
+        }
+
+        //fields with a name starting with prefix, in declaration order.
+        List<MemberEntry> getFields(String prefix) {
+            return membersWithPrefix(this, classInt(id, 7) + classInt(id, 8) + classInt(id, 9), classInt(id, 10), prefix);
+        }
+
+        //methods with a name starting with or camel case matching query, in declaration order.
+        List<MemberEntry> findMethods(String query) {
+            return membersMatching(this, classInt(id, 7), classInt(id, 8), query);
+        }
+
+        //fields with a name starting with or camel case matching query, in declaration order.
+        List<MemberEntry> findFields(String query) {
+            return membersMatching(this, classInt(id, 7) + classInt(id, 8) + classInt(id, 9), classInt(id, 10), query);
+        }
+
+        //hint text of the methods, constructors and fields in member order, built on first use.
+        private MemberDescriptor[] getMemberDescriptors() {
+            return memberDescriptors.computeIfAbsent(getName(), k -> {
+                int first = classInt(id, 7);
+                int fields = classInt(id, 8) + classInt(id, 9);
+                MemberDescriptor[] descriptors = new MemberDescriptor[fields + classInt(id, 10)];
+                for (int i = 0; i < descriptors.length; i++) {
+                    descriptors[i] = new MemberDescriptor(new MemberEntry(this, first + i), i >= fields);
+                }
+                return descriptors;
+            });
+        }
+
+        @Override
+        public int hashCode() {
+            return id;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj instanceof ClassEntry) {
+                ClassEntry other = (ClassEntry) obj;
+                return other.id == id && other.index() == index();
+            }
+            return false;
+        }
+
+        private TypeIndex index() {
+            return TypeIndex.this;
+        }
+
+        @Override
+        public String toString() {
+            return getName();
+        }
+    }
+
+    class MemberEntry {
+        private final ClassEntry owner;
+        private final int id;
+
+        private MemberEntry(ClassEntry owner, int id) {
+            this.owner = owner;
+            this.id = id;
+        }
+
+        ClassEntry getOwner() {
+            return owner;
+        }
+
+        MemberDescriptor getDescriptor() {
+            return owner.getMemberDescriptors()[id - classInt(owner.id, 7)];
+        }
+
+        String getName() {
+            return string(memberInt(id, 0));
+        }
+
+        int getModifiers() {
+            return memberInt(id, 1);
+        }
+
+        boolean isSynthetic() {
+            return (getModifiers() & SYNTHETIC) != 0;
+        }
+
+        boolean isConstructor() {
+            return getName().startsWith("<");
+        }
+
+        //method result or field type as displayed, with simple class names
+        String getTypeDisplay() {
+            return string(memberInt(id, 2));
+        }
+
+        //erased method result or field type in Class.getName() form
+        String getTypeName() {
+            return string(memberInt(id, 3));
+        }
+
+        //erased result type if it is a class reference, null for primitive and array types
+        String getResultClassName() {
+            String typeName = getTypeName();
+            return typeName.startsWith("[") || AutoCompleteAnalyzer.isPrimitive(typeName) ? null : typeName;
+        }
+
+        int getParameterCount() {
+            return memberInt(id, 5);
+        }
+
+        String getParameterName(int index) {
+            return string(paramInt(memberInt(id, 4) + index, 0));
+        }
+
+        String getParameterTypeDisplay(int index) {
+            return string(paramInt(memberInt(id, 4) + index, 1));
+        }
+
+        String getParameterTypeName(int index) {
+            return string(paramInt(memberInt(id, 4) + index, 2));
+        }
+
+        @Override
+        public String toString() {
+            return getName();
+        }
+    }
+
+}
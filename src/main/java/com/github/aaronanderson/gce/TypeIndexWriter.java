@@ -0,0 +1,405 @@
+package com.github.aaronanderson.gce;
+
+import static com.github.aaronanderson.gce.TypeIndex.CLASS_SIZE;
+import static com.github.aaronanderson.gce.TypeIndex.HEADER_SIZE;
+import static com.github.aaronanderson.gce.TypeIndex.MAGIC;
+import static com.github.aaronanderson.gce.TypeIndex.MEMBER_SIZE;
+import static com.github.aaronanderson.gce.TypeIndex.PACKAGE_SIZE;
+import static com.github.aaronanderson.gce.TypeIndex.PARAM_SIZE;
+import static com.github.aaronanderson.gce.TypeIndex.VERSION;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import io.github.classgraph.ArrayTypeSignature;
+import io.github.classgraph.BaseTypeSignature;
+import io.github.classgraph.ClassInfo;
+import io.github.classgraph.ClassRefTypeSignature;
+import io.github.classgraph.FieldInfo;
+import io.github.classgraph.MethodInfo;
+import io.github.classgraph.MethodParameterInfo;
+import io.github.classgraph.PackageInfo;
+import io.github.classgraph.ScanResult;
+import io.github.classgraph.TypeSignature;
+
+//Flattens a ClassGraph ScanResult, or the class declarations of a compiled script, into the TypeIndex binary format. See TypeIndex for the layout.
+class TypeIndexWriter {
+
+    private final Map<String, Integer> stringIds = new HashMap<>();
+    private final ByteArrayOutputStream stringData = new ByteArrayOutputStream();
+    private final IntList stringOffsets = new IntList();
+    private final IntList packages = new IntList();
+    private final IntList classes = new IntList();
+    private final IntList refs = new IntList();
+    private final IntList members = new IntList();
+    private final IntList membersByName = new IntList();
+    private final IntList membersByHumps = new IntList();
+    private final IntList params = new IntList();
+
+    private TypeIndexWriter() {
+    }
+
+    static byte[] write(ScanResult scanResult, String fingerprint) {
+        TreeMap<String, List<ClassInfo>> packageClasses = new TreeMap<>();
+        for (PackageInfo packageInfo : scanResult.getPackageInfo()) {
+            packageClasses.putIfAbsent(packageInfo.getName(), new ArrayList<>());
+        }
+        for (ClassInfo classInfo : scanResult.getAllClasses()) {
+            packageClasses.computeIfAbsent(classInfo.getPackageName(), k -> new ArrayList<>()).add(classInfo);
+        }
+        //ClassInfo is converted one class at a time so the declarations of the whole classpath are never held at once.
+        return new TypeIndexWriter().build(packageClasses, TypeIndexWriter::classDecl, fingerprint);
+    }
+
+    static byte[] write(Collection<ClassDecl> classDecls) {
+        TreeMap<String, List<ClassDecl>> packageClasses = new TreeMap<>();
+        for (ClassDecl classDecl : classDecls) {
+            packageClasses.computeIfAbsent(classDecl.packageName, k -> new ArrayList<>()).add(classDecl);
+        }
+        for (List<ClassDecl> classDeclList : packageClasses.values()) {
+            classDeclList.sort((a, b) -> a.name.compareTo(b.name));
+        }
+        return new TypeIndexWriter().build(packageClasses, Function.identity(), null);
+    }
+
+    //packageClasses holds the classes of each package sorted by name.
+    private <T> byte[] build(TreeMap<String, List<T>> packageClasses, Function<T, ClassDecl> classDecl, String fingerprint) {
+        int fingerprintId = string(fingerprint);
+
+        //packages sorted by name, including every ancestor package so the tree can be walked from the root.
+        packageClasses.putIfAbsent("", new ArrayList<>());
+        for (String packageName : new ArrayList<>(packageClasses.keySet())) {
+            for (String parent = parentPackage(packageName); parent != null; parent = parentPackage(parent)) {
+                packageClasses.putIfAbsent(parent, new ArrayList<>());
+            }
+        }
+        List<String> packageNames = new ArrayList<>(packageClasses.keySet());
+        Map<String, Integer> packageIds = new HashMap<>();
+        Map<String, IntList> packageChildren = new HashMap<>();
+        for (String packageName : packageNames) {
+            packageIds.put(packageName, packageIds.size());
+            String parent = parentPackage(packageName);
+            if (parent != null) {
+                packageChildren.computeIfAbsent(parent, k -> new IntList()).add(packageIds.get(packageName));
+            }
+        }
+
+        //classes grouped by package, in name order within each package.
+        List<String> classNames = new ArrayList<>();
+        List<String> simpleNames = new ArrayList<>();
+        for (String packageName : packageNames) {
+            List<T> classList = packageClasses.get(packageName);
+            IntList children = packageChildren.getOrDefault(packageName, new IntList());
+            String parent = parentPackage(packageName);
+            packages.add(string(packageName));
+            packages.add(parent != null ? packageIds.get(parent) : -1);
+            packages.add(refs.size());
+            packages.add(children.size());
+            refs.addAll(children);
+            packages.add(classNames.size());
+            packages.add(classList.size());
+            for (T clazz : classList) {
+                ClassDecl decl = classDecl.apply(clazz);
+                classNames.add(decl.name);
+                simpleNames.add(decl.simpleName);
+                addClass(decl, packageIds.get(packageName));
+            }
+        }
+        Integer[] byName = new Integer[classNames.size()];
+        for (int i = 0; i < byName.length; i++) {
+            byName[i] = i;
+        }
+        Arrays.sort(byName, (a, b) -> classNames.get(a).compareTo(classNames.get(b)));
+        Integer[] bySimpleName = byName.clone();
+        Arrays.sort(bySimpleName, (a, b) -> simpleNames.get(a).compareTo(simpleNames.get(b)));
+        //same ranges as the package class ranges, sorted by simple name within each package.
+        Integer[] packageBySimpleName = new Integer[classNames.size()];
+        for (int i = 0; i < packageBySimpleName.length; i++) {
+            packageBySimpleName[i] = i;
+        }
+        for (int i = 0; i < packageNames.size(); i++) {
+            int first = packages.get(i * PACKAGE_SIZE + 4);
+            Arrays.sort(packageBySimpleName, first, first + packages.get(i * PACKAGE_SIZE + 5), (a, b) -> simpleNames.get(a).compareTo(simpleNames.get(b)));
+        }
+        //the same orders by the camel case key of the simple name.
+        List<String> simpleNameKeys = simpleNames.stream().map(CamelCase::key).collect(Collectors.toList());
+        Integer[] byHumps = byName.clone();
+        Arrays.sort(byHumps, (a, b) -> simpleNameKeys.get(a).compareTo(simpleNameKeys.get(b)));
+        Integer[] packageByHumps = packageBySimpleName.clone();
+        for (int i = 0; i < packageNames.size(); i++) {
+            int first = packages.get(i * PACKAGE_SIZE + 4);
+            Arrays.sort(packageByHumps, first, first + packages.get(i * PACKAGE_SIZE + 5), (a, b) -> simpleNameKeys.get(a).compareTo(simpleNameKeys.get(b)));
+        }
+
+        int stringCount = stringIds.size();
+        stringOffsets.add(stringData.size());
+        int stringOffsetsPos = HEADER_SIZE;
+        int stringDataPos = stringOffsetsPos + stringOffsets.size() * 4;
+        int packagesPos = stringDataPos + stringData.size();
+        int classesPos = packagesPos + packages.size() * 4;
+        int classesByNamePos = classesPos + classes.size() * 4;
+        int classesBySimpleNamePos = classesByNamePos + byName.length * 4;
+        int packageClassesBySimpleNamePos = classesBySimpleNamePos + bySimpleName.length * 4;
+        int membersByNamePos = packageClassesBySimpleNamePos + packageBySimpleName.length * 4;
+        int refsPos = membersByNamePos + membersByName.size() * 4;
+        int membersPos = refsPos + refs.size() * 4;
+        int paramsPos = membersPos + members.size() * 4;
+        int classesByHumpsPos = paramsPos + params.size() * 4;
+        int packageClassesByHumpsPos = classesByHumpsPos + byHumps.length * 4;
+        int membersByHumpsPos = packageClassesByHumpsPos + packageByHumps.length * 4;
+        int size = membersByHumpsPos + membersByHumps.size() * 4;
+
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(fingerprintId);
+        buffer.putInt(stringCount).putInt(stringOffsetsPos).putInt(stringDataPos);
+        buffer.putInt(packageNames.size()).putInt(packagesPos);
+        buffer.putInt(classNames.size()).putInt(classesPos).putInt(classesByNamePos);
+        buffer.putInt(classesBySimpleNamePos).putInt(packageClassesBySimpleNamePos).putInt(membersByNamePos);
+        buffer.putInt(refsPos).putInt(membersPos).putInt(paramsPos);
+        buffer.putInt(classesByHumpsPos).putInt(packageClassesByHumpsPos).putInt(membersByHumpsPos);
+        stringOffsets.writeTo(buffer);
+        buffer.put(stringData.toByteArray());
+        packages.writeTo(buffer);
+        classes.writeTo(buffer);
+        for (Integer id : byName) {
+            buffer.putInt(id);
+        }
+        for (Integer id : bySimpleName) {
+            buffer.putInt(id);
+        }
+        for (Integer id : packageBySimpleName) {
+            buffer.putInt(id);
+        }
+        membersByName.writeTo(buffer);
+        refs.writeTo(buffer);
+        members.writeTo(buffer);
+        params.writeTo(buffer);
+        for (Integer id : byHumps) {
+            buffer.putInt(id);
+        }
+        for (Integer id : packageByHumps) {
+            buffer.putInt(id);
+        }
+        membersByHumps.writeTo(buffer);
+        return buffer.array();
+    }
+
+    private void addClass(ClassDecl classDecl, int packageId) {
+        int supertypesRef = refs.size();
+        for (String supertype : classDecl.supertypes) {
+            refs.add(string(supertype));
+        }
+        classes.add(string(classDecl.name));
+        classes.add(string(classDecl.simpleName));
+        classes.add(packageId);
+        classes.add(classDecl.modifiers);
+        classes.add(classDecl.flags);
+        classes.add(supertypesRef);
+        classes.add(classDecl.supertypes.size());
+        classes.add(members.size() / MEMBER_SIZE);
+        classes.add(classDecl.methods.size());
+        classes.add(classDecl.constructors.size());
+        classes.add(classDecl.fields.size());
+        int firstMember = members.size() / MEMBER_SIZE;
+        addByName(firstMember, classDecl.methods);
+        addByName(firstMember + classDecl.methods.size(), classDecl.constructors);
+        addByName(firstMember + classDecl.methods.size() + classDecl.constructors.size(), classDecl.fields);
+        for (List<MemberDecl> memberDecls : List.of(classDecl.methods, classDecl.constructors, classDecl.fields)) {
+            for (MemberDecl memberDecl : memberDecls) {
+                members.add(string(memberDecl.name));
+                members.add(memberDecl.modifiers);
+                members.add(string(memberDecl.typeDisplay));
+                members.add(string(memberDecl.typeName));
+                members.add(params.size() / PARAM_SIZE);
+                members.add(memberDecl.params.size());
+                for (ParamDecl paramDecl : memberDecl.params) {
+                    params.add(string(paramDecl.name));
+                    params.add(string(paramDecl.typeDisplay));
+                    params.add(string(paramDecl.typeName));
+                }
+            }
+        }
+    }
+
+    //member ids of one member range sorted by name and by camel case key, parallel to the members section.
+    private void addByName(int first, List<MemberDecl> memberDecls) {
+        Integer[] byName = new Integer[memberDecls.size()];
+        for (int i = 0; i < byName.length; i++) {
+            byName[i] = i;
+        }
+        Arrays.sort(byName, (a, b) -> memberDecls.get(a).name.compareTo(memberDecls.get(b).name));
+        for (Integer id : byName) {
+            membersByName.add(first + id);
+        }
+        List<String> keys = memberDecls.stream().map(m -> CamelCase.key(m.name)).collect(Collectors.toList());
+        Arrays.sort(byName, (a, b) -> keys.get(a).compareTo(keys.get(b)));
+        for (Integer id : byName) {
+            membersByHumps.add(first + id);
+        }
+    }
+
+    private static ClassDecl classDecl(ClassInfo classInfo) {
+        int flags = (classInfo.isInterface() ? TypeIndex.FLAG_INTERFACE : 0) | (classInfo.isAnnotation() ? TypeIndex.FLAG_ANNOTATION : 0) | (classInfo.isStandardClass() ? TypeIndex.FLAG_STANDARD : 0);
+        List<String> supertypes = new ArrayList<>(classInfo.getSuperclasses().getNames());
+        supertypes.addAll(classInfo.getInterfaces().getNames());
+        List<MemberDecl> methods = classInfo.getMethodInfo().stream().map(TypeIndexWriter::methodDecl).collect(Collectors.toList());
+        List<MemberDecl> constructors = classInfo.getConstructorInfo().stream().map(TypeIndexWriter::methodDecl).collect(Collectors.toList());
+        List<MemberDecl> fields = new ArrayList<>();
+        for (FieldInfo fieldInfo : classInfo.getFieldInfo()) {
+            fields.add(new MemberDecl(fieldInfo.getName(), fieldInfo.getModifiers(), fieldInfo.getTypeDescriptor().toStringWithSimpleNames(), typeName(fieldInfo.getTypeDescriptor()), List.of()));
+        }
+        return new ClassDecl(classInfo.getName(), classInfo.getSimpleName(), classInfo.getPackageName(), classInfo.getModifiers(), flags, supertypes, methods, constructors, fields);
+    }
+
+    private static MemberDecl methodDecl(MethodInfo methodInfo) {
+        List<ParamDecl> params = new ArrayList<>();
+        for (MethodParameterInfo param : methodInfo.getParameterInfo()) {
+            TypeSignature descriptor = param.getTypeDescriptor() != null ? param.getTypeDescriptor() : param.getTypeSignatureOrTypeDescriptor();
+            params.add(new ParamDecl(param.getName(), param.getTypeSignatureOrTypeDescriptor().toStringWithSimpleNames(), typeName(descriptor)));
+        }
+        String typeDisplay = methodInfo.getTypeSignatureOrTypeDescriptor() != null ? methodInfo.getTypeSignatureOrTypeDescriptor().getResultType().toStringWithSimpleNames() : null;
+        return new MemberDecl(methodInfo.getName(), methodInfo.getModifiers(), typeDisplay, typeName(methodInfo.getTypeDescriptor().getResultType()), params);
+    }
+
+    //erased type name in Class.getName() form, e.g. int, java.lang.String or [Ljava.lang.String;
+    static String typeName(TypeSignature type) {
+        if (type instanceof BaseTypeSignature) {
+            return ((BaseTypeSignature) type).getTypeStr();
+        } else if (type instanceof ClassRefTypeSignature) {
+            return ((ClassRefTypeSignature) type).getFullyQualifiedClassName();
+        } else if (type instanceof ArrayTypeSignature) {
+            ArrayTypeSignature arrayType = (ArrayTypeSignature) type;
+            StringBuilder name = new StringBuilder();
+            for (int i = 0; i < arrayType.getNumDimensions(); i++) {
+                name.append('[');
+            }
+            TypeSignature elementType = arrayType.getElementTypeSignature();
+            if (elementType instanceof BaseTypeSignature) {
+                name.append(((BaseTypeSignature) elementType).getTypeSignatureChar());
+            } else {
+                name.append('L').append(typeName(elementType)).append(';');
+            }
+            return name.toString();
+        }
+        return Object.class.getName();
+    }
+
+    private static String parentPackage(String packageName) {
+        if (packageName.isEmpty()) {
+            return null;
+        }
+        int index = packageName.lastIndexOf('.');
+        return index > 0 ? packageName.substring(0, index) : "";
+    }
+
+    private int string(String value) {
+        if (value == null) {
+            return -1;
+        }
+        Integer id = stringIds.get(value);
+        if (id == null) {
+            id = stringIds.size();
+            stringIds.put(value, id);
+            stringOffsets.add(stringData.size());
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            stringData.write(bytes, 0, bytes.length);
+        }
+        return id;
+    }
+
+    //a class as written to the index, supertypes are the names of all superclasses and interfaces.
+    static class ClassDecl {
+        private final String name;
+        private final String simpleName;
+        private final String packageName;
+        private final int modifiers;
+        private final int flags;
+        private final List<String> supertypes;
+        private final List<MemberDecl> methods;
+        private final List<MemberDecl> constructors;
+        private final List<MemberDecl> fields;
+
+        ClassDecl(String name, String simpleName, String packageName, int modifiers, int flags, List<String> supertypes, List<MemberDecl> methods, List<MemberDecl> constructors, List<MemberDecl> fields) {
+            this.name = name;
+            this.simpleName = simpleName;
+            this.packageName = packageName;
+            this.modifiers = modifiers;
+            this.flags = flags;
+            this.supertypes = supertypes;
+            this.methods = methods;
+            this.constructors = constructors;
+            this.fields = fields;
+        }
+    }
+
+    //a method, constructor or field, typeDisplay is the generic type with simple names and typeName the erased type name.
+    static class MemberDecl {
+        private final String name;
+        private final int modifiers;
+        private final String typeDisplay;
+        private final String typeName;
+        private final List<ParamDecl> params;
+
+        MemberDecl(String name, int modifiers, String typeDisplay, String typeName, List<ParamDecl> params) {
+            this.name = name;
+            this.modifiers = modifiers;
+            this.typeDisplay = typeDisplay;
+            this.typeName = typeName;
+            this.params = params;
+        }
+    }
+
+    static class ParamDecl {
+        private final String name;
+        private final String typeDisplay;
+        private final String typeName;
+
+        ParamDecl(String name, String typeDisplay, String typeName) {
+            this.name = name;
+            this.typeDisplay = typeDisplay;
+            this.typeName = typeName;
+        }
+    }
+
+    private static class IntList {
+        private int[] values = new int[16];
+        private int size = 0;
+
+        private void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        private void addAll(IntList list) {
+            for (int i = 0; i < list.size; i++) {
+                add(list.values[i]);
+            }
+        }
+
+        private int size() {
+            return size;
+        }
+
+        private int get(int index) {
+            return values[index];
+        }
+
+        private void writeTo(ByteBuffer buffer) {
+            buffer.asIntBuffer().put(values, 0, size);
+            buffer.position(buffer.position() + size * 4);
+        }
+    }
+
+}
@@ -52,6 +52,13 @@ export class GroovyEditorElement extends LitElement {
 
 	resolveValidation?: Function = undefined;
 
+	//hint and validate requests send the edits made since the last version acknowledged by the server instead of the full script.
+	//The server keeps its copy by this editor's documentId, editors of scripts with the same name each have their own.
+	documentId = Date.now().toString(36) + "-" + Math.random().toString(36).substring(2);
+	version = 0;
+	syncedVersion = -1;
+	pendingEdits: Array<VersionedEdit> = [];
+
 	//holds intitial script value until the editor is created
 	_script: string = "";
 
@@ -60,7 +67,9 @@ export class GroovyEditorElement extends LitElement {
 		let oldVal = undefined;
 		if (script && this.editor) {
 			oldVal = this.editor.getValue();
+			//the replacement is also tracked as an edit, for a request still in flight acknowledging an earlier version.
 			this.editor.setValue(script);
+			this.syncedVersion = -1;
 		} else {
 			oldVal = this._script;
 			this._script = script;
@@ -113,9 +122,61 @@ export class GroovyEditorElement extends LitElement {
 			lint: <SyncLintStateOptions<Object>>{ /*lintOnChange: false*/ delay: this.lintDelay, selfContain: true, tooltips: true, getAnnotations: this.groovyLint.bind(this), onUpdateLinting: this.lintComplete.bind(this) }
 		};
 		this.editor = CodeMirror(this.editorElement, config);
+		this.editor.on("change", this.trackChange.bind(this));
 		this.editor.on("changes", (e: Editor, c: Array<EditorChange>) => { this.dispatchEvent(new CustomEvent(`editor-update`, { composed: true, detail: { changes: c } })) });
 	}
 
+	//called after each change is applied so the change start position is still valid in the updated document.
+	//Changes are also kept while the full script request is in flight, the ones after the version it acknowledges are sent next.
+	trackChange(cm: Editor, change: EditorChange) {
+		this.version++;
+		this.pendingEdits.push({
+			version: this.version,
+			offset: cm.indexFromPos(change.from),
+			length: (change.removed ? change.removed : []).join("\n").length,
+			text: change.text.join("\n")
+		});
+	}
+
+	scriptSync(): ScriptSync {
+		if (this.syncedVersion < 0) {
+			return { documentId: this.documentId, version: this.version, script: this.script };
+		}
+		return {
+			documentId: this.documentId,
+			version: this.version,
+			baseVersion: this.syncedVersion,
+			edits: this.pendingEdits.filter(e => e.version > this.syncedVersion).map(e => <ScriptEdit>{ offset: e.offset, length: e.length, text: e.text })
+		};
+	}
+
+	//posts the request with the script edits, falling back to the full script when the server copy is out of sync.
+	async postScript(path: string, request: Object) {
+		let sync = this.scriptSync();
+		let response = await this.post(path, { ...request, ...sync });
+		if (response.status == 409) {
+			this.syncedVersion = -1;
+			sync = this.scriptSync();
+			response = await this.post(path, { ...request, ...sync });
+		}
+		if (response.ok && sync.version > this.syncedVersion) {
+			this.syncedVersion = sync.version;
+			this.pendingEdits = this.pendingEdits.filter(e => e.version > sync.version);
+		}
+		return response;
+	}
+
+	post(path: string, body: Object) {
+		return fetch(path, {
+			method: 'POST',
+			headers: {
+				'Accept': 'application/json',
+				'Content-Type': 'application/json'
+			},
+			body: JSON.stringify(body)
+		});
+	}
+
 
 	render() {
 		return html`${this.editorElement}${this.hintElement}`;
@@ -160,17 +221,9 @@ export class GroovyEditorElement extends LitElement {
 
 		const hintRequest = <HintRequest>{
 			...cur,
-			name: this.scriptName,
-			script: this.script
+			name: this.scriptName
 		};
-		const response = await fetch(this.hintPath, {
-			method: 'POST',
-			headers: {
-				'Accept': 'application/json',
-				'Content-Type': 'application/json'
-			},
-			body: JSON.stringify(hintRequest)
-		});
+		const response = await this.postScript(this.hintPath, hintRequest);
 		if (!response.ok) {
 			throw Error(response.statusText);
 		}
@@ -261,6 +314,10 @@ export class GroovyEditorElement extends LitElement {
 					}
 
 					cm.replaceRange(replacement, from, to, "complete");
+					//a class that is not imported yet, the import is inserted after the last import, above the completion.
+					if (hint.importValue) {
+						cm.replaceRange(hint.importValue + "\n", CodeMirror.Pos(hint.importLine || 0, 0), undefined, "complete");
+					}
 				},
 			});
 		}
@@ -280,18 +337,10 @@ export class GroovyEditorElement extends LitElement {
 		}
 
 		const validateRequest = <ValidateRequest>{
-			name: this.scriptName,
-			script: content
+			name: this.scriptName
 		};
 
-		const response = await fetch(this.validatePath, {
-			method: 'POST',
-			headers: {
-				'Accept': 'application/json',
-				'Content-Type': 'application/json'
-			},
-			body: JSON.stringify(validateRequest)
-		});
+		const response = await this.postScript(this.validatePath, validateRequest);
 
 		const validateResult: ValidateResponse = await response.json();
 		if (!response.ok) {
@@ -334,16 +383,37 @@ export class GroovyEditorElement extends LitElement {
 
 }
 
+export interface ScriptSync {
+	documentId: string;
+	version: number;
+	script?: string;
+	baseVersion?: number;
+	edits?: ScriptEdit[];
+}
+
+export interface ScriptEdit {
+	offset: number;
+	length: number;
+	text: string;
+}
+
+export interface VersionedEdit extends ScriptEdit {
+	version: number;
+}
+
 export interface HintRequest {
 	line: number;
 	ch: number;
 	sticky: string;
 	name: string;
-	script: string;
+	offset?: number;
+	limit?: number;
 }
 
 export interface HintResponse {
 	hints: GCEHint[];
+	offset: number;
+	total: number;
 
 }
 
@@ -352,11 +422,12 @@ export interface GCEHint {
 	displayed: string;
 	value: string;
 	type: string;
+	importValue?: string;
+	importLine?: number;
 }
 
 export interface ValidateRequest {
 	name: string;
-	script: string;
 }
 
 export interface ValidateResponse {
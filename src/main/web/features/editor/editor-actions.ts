@@ -79,16 +79,22 @@ export const fetchScripts: any = () => async (dispatch: any) => {
 
 
 const loadScripts = async (db: any): Promise<Array<Script>> => {
-	const response = await fetch("/api/gce/scripts", {
-		method: 'GET'
-	});
-	const scriptsResult: ScriptsResult = await response.json();
-	if (!response.ok) {
-		throw Error(response.statusText);
-	}
+	//the catalog is served in pages, they are read until the total is reached.
+	let sourceScripts: Array<SourceScript> = [];
+	let total = 0;
+	do {
+		const response = await fetch(`/api/gce/scripts?offset=${sourceScripts.length}`, {
+			method: 'GET'
+		});
+		const scriptsResult: ScriptsResult = await response.json();
+		if (!response.ok) {
+			throw Error(response.statusText);
+		}
+		sourceScripts = sourceScripts.concat(scriptsResult.scripts);
+		total = scriptsResult.scripts.length > 0 ? scriptsResult.total : sourceScripts.length;
+	} while (sourceScripts.length < total);
 
 	//base64 encoded files in a single fetch is faster for small file sizes. Larger sizes may require formdata binary encoding.
-	let sourceScripts: Array<SourceScript> = scriptsResult.scripts;
 	let scripts: Array<Script> = [];
 	for (let s of sourceScripts) {
 		let script = <Script>{}
@@ -277,11 +283,15 @@ export const readFile = (file: File): Promise<string> => {
 
 export interface ScriptsResult {
 	scripts: Array<SourceScript>;
+	offset: number;
+	total: number;
 }
 
 
 export interface SourceScript {
 	scriptId: number;
+	version: number;
+	href: string;
 	contents: SourceAttachment;
 	attachment?: SourceAttachment;
 }
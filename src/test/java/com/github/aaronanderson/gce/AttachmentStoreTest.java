@@ -0,0 +1,63 @@
+package com.github.aaronanderson.gce;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.github.aaronanderson.gce.AttachmentStore.Attachment;
+
+public class AttachmentStoreTest {
+
+    private AttachmentStore store;
+
+    @BeforeEach
+    public void start() {
+        store = new AttachmentStore();
+        store.maxSize = 1024;
+        store.attachmentDir = Optional.empty();
+        store.ttl = 600;
+    }
+
+    @AfterEach
+    public void stop() {
+        store.close();
+    }
+
+    @Test
+    public void testTake() throws IOException {
+        String id = store.upload("hello.txt", new ByteArrayInputStream("hello".getBytes(StandardCharsets.UTF_8)));
+        Attachment attachment = store.take(id);
+        try {
+            assertEquals("hello.txt", attachment.getName());
+            assertEquals(5, attachment.getSize());
+            assertEquals("hello", new String(attachment.openStream().readAllBytes(), StandardCharsets.UTF_8));
+        } finally {
+            attachment.delete();
+        }
+        //an attachment is taken by a single run.
+        assertThrows(FileNotFoundException.class, () -> store.take(id));
+    }
+
+    @Test
+    public void testTakeExpired() throws Exception {
+        store.ttl = 0;
+        String id = store.upload("hello.txt", new ByteArrayInputStream("hello".getBytes(StandardCharsets.UTF_8)));
+        Thread.sleep(10);
+        assertThrows(FileNotFoundException.class, () -> store.take(id));
+    }
+
+    @Test
+    public void testTooLarge() {
+        assertThrows(AttachmentStore.AttachmentTooLargeException.class, () -> store.spool("large.bin", new ByteArrayInputStream(new byte[2048])));
+    }
+
+}
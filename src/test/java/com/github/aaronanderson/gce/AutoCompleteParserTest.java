@@ -0,0 +1,114 @@
+package com.github.aaronanderson.gce;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class AutoCompleteParserTest {
+
+    //the repaired script, property hint and constructor hint the parse settled on.
+    private static List<String> parse(String path, int line, int ch, Executor repairExecutor) throws IOException {
+        AutoCompleteRequest request = new AutoCompleteRequest(line, ch, "before");
+        ParseSession session = new ParseSession();
+        AutoCompleteParser parser = new AutoCompleteParser(request, path.substring(path.lastIndexOf("/") + 1), IOUtils.resourceToString(path, Charset.defaultCharset()), session, repairExecutor,
+                new HintMetrics(new SimpleMeterRegistry()));
+        assertEquals(1, parser.parse().size());
+        return List.of(session.getScript(), String.valueOf(request.getPropertyHint()), String.valueOf(request.getConstructorHint()));
+    }
+
+    private static ThreadPoolExecutor repairExecutor(int threads, ClassLoader contextClassLoader) {
+        return new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(threads * 2), r -> {
+            Thread thread = new Thread(r, "gce-repair-test");
+            thread.setContextClassLoader(contextClassLoader);
+            return thread;
+        }, new ThreadPoolExecutor.DiscardPolicy());
+    }
+
+    @Test
+    public void testConcurrentRepairsFirstWins() throws Exception {
+        //the method parameter and constructor repairs both compile, the method parameter one comes first.
+        List<String> sequential = parse("/scripts/hint-repair-order.groovy", 0, 17, task -> {
+        });
+        assertEquals("def d = new Date()", sequential.get(0));
+        assertEquals("null", sequential.get(2));
+        ThreadPoolExecutor executor = repairExecutor(3, null);
+        try {
+            for (int i = 0; i < 10; i++) {
+                assertEquals(sequential, parse("/scripts/hint-repair-order.groovy", 0, 17, executor));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testConcurrentRepairsLoserFails() throws Exception {
+        //the method parameter repair does not compile, the constructor repair after it wins.
+        List<String> sequential = parse("/scripts/hint-method-constructor-param.groovy", 2, 45, task -> {
+        });
+        assertEquals("String", sequential.get(2));
+        ThreadPoolExecutor executor = repairExecutor(3, null);
+        try {
+            for (int i = 0; i < 10; i++) {
+                assertEquals(sequential, parse("/scripts/hint-method-constructor-param.groovy", 2, 45, executor));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testQueuedRepairsRemoved() throws Exception {
+        List<String> sequential = parse("/scripts/hint-repair-order.groovy", 0, 17, task -> {
+        });
+        ThreadPoolExecutor executor = repairExecutor(1, null);
+        CountDownLatch busy = new CountDownLatch(1);
+        try {
+            executor.execute(() -> {
+                try {
+                    busy.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            //the only repair thread is busy, the candidates queue up and are compiled on the calling thread instead.
+            assertEquals(sequential, parse("/scripts/hint-repair-order.groovy", 0, 17, executor));
+            assertTrue(executor.getQueue().isEmpty());
+        } finally {
+            busy.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testRepairRestoresContextClassLoader() throws Exception {
+        try (URLClassLoader poolClassLoader = new URLClassLoader(new URL[0], null)) {
+            ThreadPoolExecutor executor = repairExecutor(1, poolClassLoader);
+            try {
+                parse("/scripts/hint-repair-order.groovy", 0, 17, executor);
+                ClassLoader[] after = new ClassLoader[1];
+                executor.submit(() -> after[0] = Thread.currentThread().getContextClassLoader()).get();
+                assertSame(poolClassLoader, after[0]);
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+    }
+
+}
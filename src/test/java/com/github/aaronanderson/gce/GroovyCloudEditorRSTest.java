@@ -4,16 +4,20 @@ import static io.restassured.RestAssured.given;
 import static org.hamcrest.CoreMatchers.containsString;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.startsWith;
 import static org.hamcrest.Matchers.allOf;
 import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.hasEntry;
 import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.hasItems;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.junit.jupiter.api.Assertions.fail;
 
 import java.io.IOException;
 import java.nio.charset.Charset;
 import java.util.Base64;
+import java.util.function.Consumer;
 
 import javax.json.Json;
 import javax.json.JsonObjectBuilder;
@@ -45,6 +49,43 @@ public class GroovyCloudEditorRSTest {
                         "scripts[0].contents.text", notNullValue());
     }
 
+    @Test
+    public void testScriptFile() {
+        String href = given()
+                .when()
+                .queryParam("contents", "href")
+                .get("/api/gce/scripts")
+                .then()
+                .statusCode(200)
+                .body("scripts[0].contents.name", is("test.groovy"),
+                        "scripts[0].contents.text", nullValue(),
+                        "scripts[0].href", startsWith("script-file/1?version="))
+                .extract().path("scripts[0].href");
+        given()
+                .when().get("/api/gce/" + href)
+                .then()
+                .statusCode(200)
+                .contentType(containsString("multipart/form-data"))
+                .body(containsString("test.groovy"));
+    }
+
+    @Test
+    public void testScriptsNotModified() {
+        String etag = given()
+                .when().get("/api/gce/scripts")
+                .then()
+                .statusCode(200)
+                .header("Cache-Control", containsString("max-age"))
+                .extract().header("ETag");
+        given()
+                .when()
+                .header("If-None-Match", etag)
+                .get("/api/gce/scripts")
+                .then()
+                .statusCode(304)
+                .header("ETag", is(etag));
+    }
+
     private String buildScript(String path) {
         JsonObjectBuilder request = Json.createObjectBuilder();
         request.add("name", path.substring(path.lastIndexOf("/") + 1));
@@ -71,6 +112,22 @@ public class GroovyCloudEditorRSTest {
                         "result.value", is("Success"));
     }
 
+    @Test
+    public void testCachedRun() throws IOException {
+        //the second run reuses the compiled script class from the first
+        for (int i = 0; i < 2; i++) {
+            given()
+                    .when()
+                    .contentType("multipart/form-data")
+                    .multiPart("contents", "run-success.groovy", IOUtils.resourceToByteArray("/scripts/run-success.groovy"), "text/plain")
+                    .post("/api/gce/run")
+                    .then()
+                    .statusCode(200)
+                    .body("status", is("ok"),
+                            "result.value", is("Success"));
+        }
+    }
+
     @Test
     public void testInsecureRun() throws IOException {
         given()
@@ -84,6 +141,109 @@ public class GroovyCloudEditorRSTest {
                 .statusCode(500);
     }
 
+    @Test
+    public void testRunStream() throws IOException {
+        given()
+                .when()
+                .contentType("multipart/form-data")
+                .accept("text/event-stream")
+                .multiPart("contents", "run-stream.groovy", IOUtils.resourceToByteArray("/scripts/run-stream.groovy"), "text/plain")
+                .post("/api/gce/run-stream")
+                .then()
+                .statusCode(200)
+                //.log().body()
+                .body(containsString("event: out"), containsString("line 3"), containsString("event: status"), containsString("\"result\":\"done\""));
+    }
+
+    @Test
+    public void testRunAttachment() throws IOException {
+        String attachmentId = given()
+                .when()
+                .contentType("application/octet-stream")
+                .body("hello attachment".getBytes(Charset.forName("UTF-8")))
+                .post("/api/gce/attachments?name=hello.txt")
+                .then()
+                .statusCode(200)
+                .body("status", is("ok"))
+                .extract().path("attachmentId");
+        given()
+                .when()
+                .contentType("multipart/form-data")
+                .multiPart("contents", "run-attachment.groovy", IOUtils.resourceToByteArray("/scripts/run-attachment.groovy"), "text/plain")
+                .multiPart("attachmentId", attachmentId)
+                .post("/api/gce/run")
+                .then()
+                .statusCode(200)
+                .body("status", is("ok"), "result", is("hello.txt: hello attachment 16"));
+    }
+
+    @Test
+    public void testRequestSize() throws IOException {
+        //the test profile limits request bodies to 1M, except for attachment uploads.
+        byte[] large = new byte[2 * 1024 * 1024];
+        given()
+                .when()
+                .contentType("application/octet-stream")
+                .body(large)
+                .post("/api/gce/attachments?name=large.bin")
+                .then()
+                .statusCode(200)
+                .body("status", is("ok"));
+        JsonObjectBuilder request = Json.createObjectBuilder();
+        request.add("name", "large.groovy");
+        request.add("script", "//" + "x".repeat(large.length));
+        given()
+                .when()
+                .body(request.build().toString())
+                .contentType(ContentType.JSON)
+                .post("/api/gce/validate")
+                .then()
+                .statusCode(413)
+                .body("status", is("error"), "message", containsString("/gce/attachments"));
+    }
+
+    @Test
+    public void testRunSavedScript() throws IOException {
+        given()
+                .when()
+                .contentType("multipart/form-data")
+                .multiPart("scriptId", "1")
+                .multiPart("contents", "test.groovy", IOUtils.resourceToByteArray("/scripts/run-success.groovy"), "text/plain")
+                .post("/api/gce/scripts")
+                .then()
+                .statusCode(200)
+                .body("status", is("ok"), "scriptId", is("1"), "version", greaterThan(1));
+        given()
+                .when()
+                .contentType("multipart/form-data")
+                .multiPart("scriptId", "1")
+                .post("/api/gce/run")
+                .then()
+                .statusCode(200)
+                .body("status", is("ok"), "result.value", is("Success"));
+    }
+
+    @Test
+    public void testRunTimeout() throws IOException {
+        given()
+                .when()
+                .contentType("multipart/form-data")
+                .multiPart("contents", "run-timeout.groovy", IOUtils.resourceToByteArray("/scripts/run-timeout.groovy"), "text/plain")
+                .post("/api/gce/run")
+                .then()
+                .statusCode(500)
+                .body("status", is("error"), "message", is("Script run exceeded the 3 second time limit"));
+        given()
+                .when().get("/q/metrics")
+                .then()
+                .statusCode(200)
+                .body(containsString("gce_run_seconds_count{outcome=\"timeout\",}"),
+                        containsString("gce_run_seconds_count{outcome=\"ok\",}"),
+                        containsString("gce_run_rejected_total"),
+                        containsString("gce_run_queue"),
+                        containsString("gce_run_active"));
+    }
+
     @Test
     public void testValidate() throws IOException {
         given()
@@ -98,6 +258,37 @@ public class GroovyCloudEditorRSTest {
                 .body("status", is("ok"));
     }
 
+    @Test
+    public void testValidateCached() throws IOException {
+        for (int i = 0; i < 2; i++) {
+            given()
+                    .when()
+                    .body(buildScript("/scripts/validate-error.groovy"))
+                    .contentType(ContentType.JSON)
+                    .post("/api/gce/validate")
+                    .then()
+                    .statusCode(200)
+                    .body("status", is("ok"), "errors.size()", is(1));
+        }
+        given()
+                .when().get("/q/metrics")
+                .then()
+                .statusCode(200)
+                .body(containsString("gce_validate_cache_total{result=\"hit\",}"));
+    }
+
+    @Test
+    public void testValidateHint() throws IOException {
+        given()
+                .when()
+                .body(buildHint("/scripts/hint-method.groovy", 4, 5, "before"))
+                .contentType(ContentType.JSON)
+                .post("/api/gce/validate-hint")
+                .then()
+                .statusCode(200)
+                .body("status", is("ok"), "errors.size()", is(1), "hints.size()", greaterThan(0));
+    }
+
     @Test
     public void testValidateError() throws IOException {
         given()
@@ -118,7 +309,81 @@ public class GroovyCloudEditorRSTest {
                         "errors[0].message", containsString("Unexpected input"));
     }
 
+    @Test
+    public void testValidateEdits() throws IOException {
+        JsonObjectBuilder request = Json.createObjectBuilder();
+        request.add("name", "validate-edits.groovy");
+        request.add("documentId", "validate-edits-1");
+        request.add("version", 1);
+        request.add("script", IOUtils.resourceToString("/scripts/validate-success.groovy", Charset.defaultCharset()));
+        given()
+                .when()
+                .body(request.build().toString())
+                .contentType(ContentType.JSON)
+                .post("/api/gce/validate")
+                .then()
+                .statusCode(200)
+                .body("status", is("ok"),
+                        "version", is(1));
+
+        //only the inserted text is sent, the server applies it to its copy of version 1
+        request = Json.createObjectBuilder();
+        request.add("name", "validate-edits.groovy");
+        request.add("documentId", "validate-edits-1");
+        request.add("baseVersion", 1);
+        request.add("version", 2);
+        request.add("edits", Json.createArrayBuilder().add(Json.createObjectBuilder().add("offset", 22).add("length", 0).add("text", "def invalid =\n\n")));
+        given()
+                .when()
+                .body(request.build().toString())
+                .contentType(ContentType.JSON)
+                .post("/api/gce/validate")
+                .then()
+                .statusCode(200)
+                .body("status", is("ok"),
+                        "version", is(2),
+                        "errors.size()", is(1),
+                        "errors[0].sline", is(5));
+
+        //another editor of a script with the same name has its own copy
+        request = Json.createObjectBuilder();
+        request.add("name", "validate-edits.groovy");
+        request.add("documentId", "validate-edits-2");
+        request.add("baseVersion", 2);
+        request.add("version", 3);
+        request.add("edits", Json.createArrayBuilder());
+        given()
+                .when()
+                .body(request.build().toString())
+                .contentType(ContentType.JSON)
+                .post("/api/gce/validate")
+                .then()
+                .statusCode(409)
+                .body("status", is("resync"));
+
+        request = Json.createObjectBuilder();
+        request.add("name", "validate-edits.groovy");
+        request.add("documentId", "validate-edits-1");
+        request.add("baseVersion", 5);
+        request.add("version", 6);
+        request.add("edits", Json.createArrayBuilder());
+        given()
+                .when()
+                .body(request.build().toString())
+                .contentType(ContentType.JSON)
+                .post("/api/gce/validate")
+                .then()
+                .statusCode(409)
+                .body("status", is("resync"));
+    }
+
     private String buildHint(String path, int line, int ch, String sticky) {
+        return hintRequest(path, line, ch, sticky, request -> {
+        });
+    }
+
+    //a hint request with additional options added by customizer, e.g. trace or documentId.
+    private String hintRequest(String path, int line, int ch, String sticky, Consumer<JsonObjectBuilder> customizer) {
         JsonObjectBuilder request = Json.createObjectBuilder();
         request.add("name", path.substring(path.lastIndexOf("/") + 1));
         try {
@@ -133,6 +398,7 @@ public class GroovyCloudEditorRSTest {
         } else {
             request.addNull("sticky");
         }
+        customizer.accept(request);
         return request.build().toString();
     }
 
@@ -283,6 +549,22 @@ public class GroovyCloudEditorRSTest {
                         "hints", hasItem(allOf(hasEntry("displayed", "add(String param, String param2) - JsonObjectBuilder"), hasEntry("value", "add(param, param2)"))));
     }
     
+    @Test
+    public void testHintPartial() throws IOException {
+        given()
+                .when()
+                .body(buildHint("/scripts/hint-partial.groovy", 5, 34, "before"))
+                .contentType(ContentType.JSON)
+                //.log().body()
+                .post("/api/gce/hint")
+                .then()
+                .statusCode(200)
+                //.log().body()
+                .body("status", is("ok"),
+                        "hints.size()", is(1),
+                        "hints[0].displayed", is("build() - JsonObject"));
+    }
+
     @Test
     public void testHintMethodReturn3() throws IOException {
         given()
@@ -571,4 +853,159 @@ public class GroovyCloudEditorRSTest {
                         "hints", hasItem(allOf(hasEntry("displayed", "Test()"), hasEntry("value", "Test()"))));
     }
 
+    @Test
+    public void testHintClassProperty() throws IOException {
+        given()
+                .when()
+                .body(buildHint("/scripts/hint-class-property.groovy", 5, 11, "before"))
+                .contentType(ContentType.JSON)
+                //.log().body()
+                .post("/api/gce/hint")
+                .then()
+                .statusCode(200)
+                //.log().body()
+                .body("status", is("ok"),
+                        "hints.size()", is(1),
+                        "hints[0].displayed", is("getName() - String"));
+    }
+
+    @Test
+    public void testHintMetrics() throws IOException {
+        given()
+                .when()
+                .body(buildHint("/scripts/hint-field.groovy", 4, 21, "before"))
+                .contentType(ContentType.JSON)
+                .post("/api/gce/hint")
+                .then()
+                .statusCode(200)
+                .body("status", is("ok"));
+        given()
+                .when().get("/q/metrics")
+                .then()
+                .statusCode(200)
+                .body(containsString("gce_hint_inspect_seconds{category=\"property\",quantile=\"0.95\",}"),
+                        containsString("gce_hint_compile_seconds_count{phase=\"canonicalization\",result=\"ok\",}"));
+    }
+
+    @Test
+    public void testHintTrace() throws IOException {
+        String request = hintRequest("/scripts/hint-method-return2.groovy", 2, 34, "before", r -> r.add("trace", true));
+        given()
+                .when()
+                .body(request)
+                .contentType(ContentType.JSON)
+                //.log().body()
+                .post("/api/gce/hint")
+                .then()
+                .statusCode(200)
+                //.log().body()
+                .body("status", is("ok"),
+                        "hints.size()", is(greaterThan(0)),
+                        "trace.name", is("hint"),
+                        "trace.ms", is(notNullValue()),
+                        "trace.children.name", hasItems("parse", "inspect", "serialize"),
+                        "trace.children.find { it.name == 'parse' }.children.name", hasItem("compile"),
+                        "trace.children.find { it.name == 'inspect' }.children.name", hasItem("visit"));
+    }
+
+    @Test
+    public void testHintSession() throws IOException {
+        String request = hintRequest("/scripts/hint-method-partial.groovy", 4, 8, "before", r -> r.add("documentId", "hint-session").add("trace", true));
+        given()
+                .when()
+                .body(request)
+                .contentType(ContentType.JSON)
+                .post("/api/gce/hint")
+                .then()
+                .statusCode(200);
+        //the unchanged text of the same document is not compiled again
+        given()
+                .when()
+                .body(request)
+                .contentType(ContentType.JSON)
+                //.log().body()
+                .post("/api/gce/hint")
+                .then()
+                .statusCode(200)
+                //.log().body()
+                .body("status", is("ok"),
+                        "hints.size()", is(greaterThan(0)),
+                        "trace.children.find { it.name == 'parse' }.children.find { it.name == 'compile' }.detail", is("session"));
+    }
+
+    @Test
+    public void testHintLimit() throws IOException {
+        String request = hintRequest("/scripts/hint-new-variable-type.groovy", 2, 16, "before", r -> r.add("offset", 1).add("limit", 5));
+        given()
+                .when()
+                .body(request)
+                .contentType(ContentType.JSON)
+                //.log().body()
+                .post("/api/gce/hint")
+                .then()
+                .statusCode(200)
+                //.log().body()
+                .body("status", is("ok"),
+                        "hints.size()", is(5),
+                        "offset", is(1),
+                        "total", is(greaterThan(5)));
+    }
+
+    @Test
+    public void testHintCamelCase() throws IOException {
+        given()
+                .when()
+                .body(buildHint("/scripts/hint-camel-case.groovy", 2, 20, "before"))
+                .contentType(ContentType.JSON)
+                //.log().body()
+                .post("/api/gce/hint")
+                .then()
+                .statusCode(200)
+                //.log().body()
+                .body("status", is("ok"),
+                        "hints.size()", is(greaterThan(0)),
+                        "hints[0].displayed", containsString("java.io.ByteArrayInputStream("));
+        //an all lower case query spanning several humps.
+        given()
+                .when()
+                .body(buildHint("/scripts/hint-camel-case-lower.groovy", 2, 23, "before"))
+                .contentType(ContentType.JSON)
+                //.log().body()
+                .post("/api/gce/hint")
+                .then()
+                .statusCode(200)
+                //.log().body()
+                .body("status", is("ok"),
+                        "hints.displayed", hasItem(containsString("java.io.ByteArrayInputStream(")),
+                        "hints.displayed", hasItem(containsString("java.io.ByteArrayOutputStream(")));
+    }
+
+    @Test
+    public void testHintAutoImport() throws IOException {
+        String request = hintRequest("/scripts/hint-auto-import.groovy", 0, 29, "before", r -> r.add("autoImport", true));
+        given()
+                .when()
+                .body(request)
+                .contentType(ContentType.JSON)
+                //.log().body()
+                .post("/api/gce/hint")
+                .then()
+                .statusCode(200)
+                //.log().body()
+                .body("status", is("ok"),
+                        "hints", hasItem(hasEntry("importValue", "import java.util.concurrent.ConcurrentHashMap")),
+                        "hints.find { it.importValue != null }.importLine", is(0));
+
+        //off by default
+        given()
+                .when()
+                .body(buildHint("/scripts/hint-auto-import.groovy", 0, 29, "before"))
+                .contentType(ContentType.JSON)
+                .post("/api/gce/hint")
+                .then()
+                .statusCode(200)
+                .body("status", is("ok"),
+                        "hints.findAll { it.importValue != null }.size()", is(0));
+    }
+
 }
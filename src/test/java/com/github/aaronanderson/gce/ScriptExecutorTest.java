@@ -0,0 +1,134 @@
+package com.github.aaronanderson.gce;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class ScriptExecutorTest {
+
+    private SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private ScriptExecutor executor;
+
+    private ScriptExecutor start(int threads, int queueSize, long timeout) {
+        executor = new ScriptExecutor();
+        executor.threads = threads;
+        executor.queueSize = queueSize;
+        executor.timeout = timeout;
+        executor.registry = registry;
+        executor.start();
+        return executor;
+    }
+
+    @AfterEach
+    public void stop() {
+        if (executor != null) {
+            executor.stop();
+        }
+    }
+
+    private long runs(String outcome) {
+        return registry.get("gce.run").tag("outcome", outcome).timer().count();
+    }
+
+    //the run timers are recorded by a completion action of the run, which may still be running when the caller sees the result.
+    private void assertRuns(String outcome, long expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (runs(outcome) != expected && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(expected, runs(outcome));
+    }
+
+    @Test
+    public void testRejected() throws Exception {
+        start(1, 0, 5);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger exits = new AtomicInteger();
+        CompletableFuture<String> running = executor.submit(() -> {
+            started.countDown();
+            release.await();
+            return "done";
+        }, exits::incrementAndGet);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        //the only thread is busy and a queueSize of 0 queues nothing.
+        assertThrows(RejectedExecutionException.class, () -> executor.execute(() -> "rejected", exits::incrementAndGet));
+        assertEquals(1, registry.get("gce.run.rejected").counter().count());
+        assertEquals(1, registry.get("gce.run.active").gauge().value());
+        release.countDown();
+        assertEquals("done", running.get(5, TimeUnit.SECONDS));
+        assertRuns("ok", 1);
+        //exit is not called for the rejected run.
+        assertEquals(1, exits.get());
+    }
+
+    @Test
+    public void testQueued() throws Exception {
+        start(1, 1, 5);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<String> running = executor.submit(() -> {
+            release.await();
+            return "first";
+        }, () -> {
+        });
+        CompletableFuture<String> queued = executor.submit(() -> "second", () -> {
+        });
+        assertEquals(1, registry.get("gce.run.queue").gauge().value());
+        assertThrows(RejectedExecutionException.class, () -> executor.submit(() -> "third", () -> {
+        }));
+        release.countDown();
+        assertEquals("first", running.get(5, TimeUnit.SECONDS));
+        assertEquals("second", queued.get(5, TimeUnit.SECONDS));
+        assertEquals(1, registry.get("gce.run.rejected").counter().count());
+    }
+
+    @Test
+    public void testTimeout() throws Exception {
+        start(1, 0, 1);
+        CountDownLatch exited = new CountDownLatch(1);
+        ExecutionException e = assertThrows(ExecutionException.class, () -> executor.execute(() -> {
+            Thread.sleep(TimeUnit.SECONDS.toMillis(30));
+            return "late";
+        }, exited::countDown));
+        assertTrue(e.getCause() instanceof TimeoutException);
+        assertEquals("Script run exceeded the 1 second time limit", e.getCause().getMessage());
+        //the interrupted run leaves the pool after the deadline completed the result.
+        assertTrue(exited.await(5, TimeUnit.SECONDS));
+        assertRuns("timeout", 1);
+        assertEquals(0, runs("ok"));
+    }
+
+    @Test
+    public void testError() throws Exception {
+        start(1, 0, 5);
+        ExecutionException e = assertThrows(ExecutionException.class, () -> executor.execute(() -> {
+            throw new IllegalStateException("failed");
+        }, () -> {
+        }));
+        assertEquals("failed", e.getCause().getMessage());
+        assertRuns("error", 1);
+    }
+
+    @Test
+    public void testNegativeQueueSize() {
+        ScriptExecutor invalid = new ScriptExecutor();
+        invalid.threads = 1;
+        invalid.queueSize = -1;
+        invalid.registry = registry;
+        assertThrows(IllegalArgumentException.class, invalid::start);
+    }
+
+}
@@ -0,0 +1,166 @@
+package com.github.aaronanderson.gce;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.everyItem;
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.hasItems;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.codehaus.groovy.control.CompilationUnit;
+import org.codehaus.groovy.control.Phases;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import com.github.aaronanderson.gce.TypeIndex.ClassEntry;
+import com.github.aaronanderson.gce.TypeIndex.MemberEntry;
+
+import io.github.classgraph.ClassGraph;
+
+public class TypeIndexTest {
+
+    private static Path dir;
+    private static TypeIndex index;
+
+    private static ClassGraph classGraph(List<String> acceptPackages) {
+        return new ClassGraph().acceptPackages(acceptPackages.toArray(new String[acceptPackages.size()])).enableSystemJarsAndModules().enableClassInfo().enableMethodInfo().enableFieldInfo();
+    }
+
+    @BeforeAll
+    public static void start() throws IOException {
+        dir = Files.createTempDirectory("gce-index-test");
+        index = TypeIndex.scan(classGraph(List.of("java.io")));
+    }
+
+    @AfterAll
+    public static void stop() throws IOException {
+        for (Path file : Files.list(dir).collect(Collectors.toList())) {
+            Files.delete(file);
+        }
+        Files.delete(dir);
+    }
+
+    private static List<String> names(List<?> entries) {
+        List<String> names = new ArrayList<>();
+        for (Object entry : entries) {
+            names.add(entry instanceof ClassEntry ? ((ClassEntry) entry).getSimpleName() : ((MemberEntry) entry).getName());
+        }
+        return names;
+    }
+
+    @Test
+    public void testSaveLoad() throws IOException {
+        Path indexFile = dir.resolve("save-load.bin");
+        List<String> acceptPackages = List.of("java.io");
+        TypeIndex saved = TypeIndex.load(classGraph(acceptPackages), indexFile, acceptPackages, List.of());
+        ByteBuffer header = ByteBuffer.wrap(Files.readAllBytes(indexFile));
+        assertEquals(TypeIndex.MAGIC, header.getInt(0));
+        assertEquals(TypeIndex.VERSION, header.getInt(4));
+        long modified = Files.getLastModifiedTime(indexFile).toMillis();
+        //an unchanged classpath maps the saved file instead of scanning.
+        TypeIndex loaded = TypeIndex.load(classGraph(acceptPackages), indexFile, acceptPackages, List.of());
+        assertEquals(modified, Files.getLastModifiedTime(indexFile).toMillis());
+        ClassEntry file = loaded.getClass("java.io.File");
+        assertNotNull(file);
+        assertEquals(names(saved.getClass("java.io.File").getMethods()), names(file.getMethods()));
+        assertEquals(names(saved.getPackage("java.io").getClasses()), names(loaded.getPackage("java.io").getClasses()));
+        assertEquals(index.getClasses().size(), loaded.getClasses().size());
+    }
+
+    @Test
+    public void testFingerprintChanged() throws IOException {
+        Path indexFile = dir.resolve("fingerprint.bin");
+        TypeIndex io = TypeIndex.load(classGraph(List.of("java.io")), indexFile, List.of("java.io"), List.of());
+        assertNotNull(io.getClass("java.io.File"));
+        //other scan settings change the fingerprint, the saved index is rebuilt.
+        TypeIndex zip = TypeIndex.load(classGraph(List.of("java.util.zip")), indexFile, List.of("java.util.zip"), List.of());
+        assertNull(zip.getClass("java.io.File"));
+        assertNotNull(zip.getClass("java.util.zip.ZipFile"));
+    }
+
+    @Test
+    public void testOtherVersion() throws IOException {
+        Path indexFile = dir.resolve("version.bin");
+        List<String> acceptPackages = List.of("java.io");
+        TypeIndex.load(classGraph(acceptPackages), indexFile, acceptPackages, List.of());
+        byte[] data = Files.readAllBytes(indexFile);
+        ByteBuffer.wrap(data).putInt(4, TypeIndex.VERSION - 1);
+        Files.write(indexFile, data);
+        //a file written by another version of the format is rescanned and replaced.
+        TypeIndex loaded = TypeIndex.load(classGraph(acceptPackages), indexFile, acceptPackages, List.of());
+        assertNotNull(loaded.getClass("java.io.File"));
+        assertEquals(TypeIndex.VERSION, ByteBuffer.wrap(Files.readAllBytes(indexFile)).getInt(4));
+    }
+
+    @Test
+    public void testPrefixRanges() {
+        List<String> classes = names(index.getClasses("ByteArray"));
+        assertThat(classes, hasItems("ByteArrayInputStream", "ByteArrayOutputStream"));
+        assertThat(classes, everyItem(startsWith("ByteArray")));
+        assertEquals(classes.stream().sorted().collect(Collectors.toList()), classes);
+        assertThat(names(index.getPackage("java.io").getClasses("Buffered")), hasItems("BufferedReader", "BufferedWriter"));
+        assertTrue(index.getClasses("NoSuchPrefix").isEmpty());
+        ClassEntry file = index.getClass("java.io.File");
+        List<String> methods = names(file.getMethods("list"));
+        assertThat(methods, hasItems("list", "listFiles"));
+        assertThat(methods, everyItem(startsWith("list")));
+        assertThat(names(file.getFields("separator")), hasItems("separator", "separatorChar"));
+    }
+
+    @Test
+    public void testCamelCase() {
+        assertThat(names(index.findClasses("BAIS")), hasItem("ByteArrayInputStream"));
+        assertThat(names(index.findClasses("bytearr")), hasItems("ByteArrayInputStream", "ByteArrayOutputStream"));
+        //prefix matches come first.
+        assertEquals("ByteArrayInputStream", names(index.findClasses("ByteArrayI")).get(0));
+        assertThat(names(index.findClasses("bais")), not(hasItem("BufferedReader")));
+        assertThat(names(index.getClass("java.io.File").findMethods("gAP")), hasItem("getAbsolutePath"));
+    }
+
+    @Test
+    public void testMemberDescriptorsShared() {
+        MemberEntry first = index.getClass("java.io.File").getMethods("getName").get(0);
+        MemberEntry second = index.getClass("java.io.File").getMethods("getName").get(0);
+        //the hint text is built once per class and reused by later lookups.
+        assertSame(first.getDescriptor(), second.getDescriptor());
+        assertEquals("() - String", first.getDescriptor().getDisplayed());
+    }
+
+    @Test
+    public void testSupertypes() {
+        List<String> supertypes = index.getClass("java.io.ByteArrayInputStream").getSupertypes();
+        assertThat(supertypes, hasItems("java.io.InputStream", "java.io.Closeable"));
+        assertThat(index.getClass("java.io.BufferedReader").getSupertypes(), hasItem("java.io.Reader"));
+        assertThat(index.getClass("java.io.Reader").getSupertypes(), not(hasItem("java.io.BufferedReader")));
+    }
+
+    @Test
+    public void testScriptClasses() {
+        CompilationUnit compileUnit = new CompilationUnit(ScriptValidator.compilerConfiguration());
+        compileUnit.addSource("Greeting.groovy", "class Greeter extends java.io.StringReader {\n Greeter() { super('') }\n String greeting\n String greet(String name) { greeting + name }\n}\n");
+        compileUnit.compile(Phases.CANONICALIZATION);
+        TypeIndex scriptIndex = TypeIndex.of(compileUnit.getAST().getClasses());
+        ClassEntry greeter = scriptIndex.getClass("Greeter");
+        assertNotNull(greeter);
+        assertThat(names(greeter.getMethods("g")), hasItems("greet", "getGreeting"));
+        assertEquals(1, greeter.getMethods("greet").get(0).getParameterCount());
+        assertEquals("java.lang.String", greeter.getMethods("greet").get(0).getTypeName());
+        assertThat(greeter.getSupertypes(), hasItems("java.io.StringReader", "java.io.Reader"));
+        assertThat(names(scriptIndex.findClasses("gr")), hasItem("Greeter"));
+    }
+
+}
@@ -0,0 +1 @@
+def map = new ConcurrentHashM
\ No newline at end of file
@@ -0,0 +1,3 @@
+import java.io.*
+
+def input = new bytearr
\ No newline at end of file
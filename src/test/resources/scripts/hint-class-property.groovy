@@ -0,0 +1,6 @@
+class Person {
+    String name
+}
+
+Person person = new Person()
+person.getN
\ No newline at end of file
@@ -0,0 +1,7 @@
+import javax.json.*;
+
+String label = "gce"
+if (label.size() > 0 {
+    JsonObjectBuilder builder = Json.createObjectBuilder()
+    builder.add("value", label).bu
+}
@@ -0,0 +1 @@
+def d = new Date(
\ No newline at end of file
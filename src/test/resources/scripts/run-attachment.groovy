@@ -0,0 +1 @@
+return "$attachmentName: ${new String(attachment.readAllBytes(), "UTF-8")} ${attachmentBuffer.remaining()}".toString()
\ No newline at end of file
@@ -0,0 +1,4 @@
+for (int i = 1; i <= 3; i++) {
+    println "line $i"
+}
+return "done"
@@ -0,0 +1,4 @@
+def count = 0
+while (true) {
+    count++
+}